@@ -1,15 +1,30 @@
 import java.util.*;
+import java.io.*;
 
 // A program to work with Mini-Git. Manages the state of repositories and allows for all
 // operations defined in Mini-Git.
+// Run with no arguments for the interactive client, or with the path to an operation script
+// to replay it in batch mode (see runBatch for the script format).
 public class Client {
     private static List<String> ops = new ArrayList<>();
 
-    public static void main(String[] args) {
+    // One operation of a batch script, applied to the named repository with the rest of the
+    // script line as its argument.
+    private interface BatchOp {
+        void apply(RepositoryRegistry repos, String name, String arg, PrintWriter out);
+    }
+
+    private static final Map<String, BatchOp> BATCH_OPS = batchOps();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            runBatch(args[0]);
+            return;
+        }
         Collections.addAll(ops, "create", "head", "history", "commit", "drop",
                            "synchronize", "quit");
         Scanner console = new Scanner(System.in);
-        Map<String, Repository> repos = new HashMap<>();
+        RepositoryRegistry repos = new RepositoryRegistry();
         String op = "";
         String name = "";
 
@@ -17,7 +32,7 @@ public class Client {
 
         while (!op.equalsIgnoreCase("quit")) {
             System.out.println("Available repositories: ");
-            for (Repository repo : repos.values()) {
+            for (Repository repo : repos.getRepositories()) {
                 System.out.println("\t" + repo);
             }
             System.out.println("Operations: " + ops);
@@ -27,7 +42,7 @@ public class Client {
             name = input.length > 1 ? input[1] : "";
             while (!ops.contains(op) || (!op.equalsIgnoreCase("create") &&
                     !op.equalsIgnoreCase("quit") &&
-                    !repos.containsKey(name))) {
+                    !repos.contains(name))) {
                 System.out.println("  **ERROR**: Operation or repository not recognized.");
                 System.out.print("Enter operation and repository: ");
                 input = console.nextLine().split("\\s+");
@@ -41,8 +56,7 @@ public class Client {
                 if (currRepo != null) {
                     System.out.println("  **ERROR**: Repository with that name already exists.");
                 } else {
-                    Repository newRepo = new Repository(name);
-                    repos.put(name, newRepo);
+                    Repository newRepo = repos.create(name);
                     System.out.println("  New repository created: " + newRepo);
                 }
             } else if (op.equalsIgnoreCase("head")) {
@@ -70,16 +84,112 @@ public class Client {
                 String repo = console.nextLine();
                 if (repo.equals(name)) {
                     System.out.println("Cannot synchronize the same repositories!");
-                } else if (!repos.containsKey(repo)) {
+                } else if (!repos.contains(repo)) {
                     System.out.println("Repository does not exist!");
                 } else {
-                    currRepo.synchronize(repos.get(repo));
+                    repos.synchronize(name, repo);
                 }
             }
             System.out.println();
         }
     }
 
+    // Replays the operation script in the given file without prompting, printing only the
+    // results of the operations that produce output, followed by a timing summary.
+    // Each non-blank line of the script that doesn't start with '#' (after any leading
+    // whitespace) has the form
+    //      <operation> <repository> [argument]
+    // where the parts are separated by whitespace (spaces or tabs) and the argument is
+    // everything after the whitespace character that follows the repository name:
+    //      create <repo>               head <repo>
+    //      commit <repo> <message>     history <repo> <n>
+    //      drop <repo> <id>            synchronize <repo> <other repo>
+    // Lines that can't be applied are reported on System.err and skipped.
+    // Throws an IOException
+    //      If the script file can't be read
+    public static void runBatch(String fileName) throws IOException {
+        RepositoryRegistry repos = new RepositoryRegistry();
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out), 1 << 16));
+        long count = 0;
+        long lineNumber = 0;
+        long start = System.nanoTime();
+
+        try (BufferedReader script = new BufferedReader(new FileReader(fileName), 1 << 16)) {
+            String line = script.readLine();
+            while (line != null) {
+                lineNumber++;
+                int opStart = skipSpaces(line, 0);
+                if (opStart < line.length() && line.charAt(opStart) != '#') {
+                    int opEnd = nextSpace(line, opStart);
+                    int nameStart = skipSpaces(line, opEnd);
+                    int nameEnd = nextSpace(line, nameStart);
+                    int argStart = Math.min(nameEnd + 1, line.length());
+                    BatchOp op = BATCH_OPS.get(line.substring(opStart, opEnd)
+                                                         .toLowerCase(Locale.ROOT));
+                    String name = line.substring(nameStart, nameEnd);
+                    if (op == null) {
+                        System.err.println("  **ERROR** line " + lineNumber +
+                                           ": Operation not recognized.");
+                    } else {
+                        try {
+                            op.apply(repos, name, line.substring(argStart), out);
+                            count++;
+                        } catch (RuntimeException e) {
+                            System.err.println("  **ERROR** line " + lineNumber + ": " +
+                                               e.getMessage());
+                        }
+                    }
+                }
+                line = script.readLine();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("Processed %d operations in %.3f s (%.0f ops/sec)%n", count, seconds,
+                   count / Math.max(seconds, 1e-9));
+        out.flush();
+    }
+
+    // Builds the table of batch operations, keyed by operation name.
+    private static Map<String, BatchOp> batchOps() {
+        Map<String, BatchOp> table = new HashMap<>();
+        table.put("create", (repos, name, arg, out) -> repos.create(name));
+        table.put("head", (repos, name, arg, out) ->
+                out.println(repos.withRepository(name, Repository::getRepoHead)));
+        table.put("history", (repos, name, arg, out) -> {
+            int n = Integer.parseInt(arg.trim());
+            String history = repos.withRepository(name, repo -> repo.getHistory(n));
+            out.print(history);
+        });
+        table.put("commit", (repos, name, arg, out) ->
+                repos.withRepository(name, repo -> repo.commit(arg)));
+        table.put("drop", (repos, name, arg, out) ->
+                repos.withRepository(name, repo -> repo.drop(arg.trim())));
+        table.put("synchronize", (repos, name, arg, out) -> repos.synchronize(name, arg.trim()));
+        return table;
+    }
+
+    // Returns the index of the first whitespace character (a space, tab, etc.) at or after
+    // 'from' in the given line, or the length of the line if there is none
+    private static int nextSpace(String line, int from) {
+        int i = from;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // Returns the index of the first character at or after 'from' in the given line that isn't
+    // whitespace, or the length of the line if there is none
+    private static int skipSpaces(String line, int from) {
+        int i = from;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
     // Prints out an introduction to the Mini-Git test client.
     public static void intro() {
         System.out.println("Welcome to the Mini-Git test client!");
@@ -0,0 +1,257 @@
+import java.util.*;
+
+//This class represents an inverted index over the messages of the commits in a repository.
+//Every commit is given an ordinal (its position in the repository, counting up from the oldest
+//commit), and every term in a commit message maps to a sorted posting list of the ordinals of
+//the commits whose messages contain that term. Queries return commit IDs with the most recent
+//commits first.
+public class MessageIndex {
+    private TreeMap<String, Postings> terms;
+    private List<Repository.Commit> commits;
+    private Map<String, Integer> ordinals;
+    private BitSet dead;
+    private int deadCount;
+    private boolean stale;
+
+    //This class represents a posting list--a growable array of commit ordinals kept in
+    //ascending (oldest to newest) order.
+    private static class Postings {
+        public int[] ords;
+        public int size;
+
+        //This constructor creates a new, empty posting list.
+        public Postings() {
+            this.ords = new int[4];
+        }
+
+        //This method adds an ordinal to the end of the posting list. Ordinals must be added in
+        //ascending order.
+        //Parameters:
+        //  - ord: the ordinal to add (integer)
+        public void add(int ord) {
+            if (size > 0 && ords[size - 1] == ord) {
+                return;
+            }
+            if (size == ords.length) {
+                ords = Arrays.copyOf(ords, size * 2);
+            }
+            ords[size] = ord;
+            size++;
+        }
+
+        //Behavior: checks whether the posting list contains the given ordinal.
+        //Return: true if the ordinal is in the list, false otherwise
+        //Parameters:
+        //  - ord: the ordinal to look for (integer)
+        public boolean contains(int ord) {
+            return Arrays.binarySearch(ords, 0, size, ord) >= 0;
+        }
+    }
+
+    //This constructor creates a new, empty MessageIndex.
+    public MessageIndex() {
+        clear();
+    }
+
+    //This method removes every commit from the index.
+    public void clear() {
+        this.terms = new TreeMap<>();
+        this.commits = new ArrayList<>();
+        this.ordinals = new HashMap<>();
+        this.dead = new BitSet();
+        this.deadCount = 0;
+        this.stale = false;
+    }
+
+    //This method adds a newly made commit to the index. The commit must be more recent than
+    //every commit already in the index.
+    //Parameters:
+    //  - commit: the non-null commit to add
+    public void add(Repository.Commit commit) {
+        if (stale) {
+            return;
+        }
+        int ord = commits.size();
+        commits.add(commit);
+        ordinals.put(commit.id, ord);
+        for (String term : tokenize(commit.message)) {
+            Postings postings = terms.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(term, postings);
+            }
+            postings.add(ord);
+        }
+    }
+
+    //Behavior: this method marks the commit with the given ID as removed. The posting lists are
+    //not touched right away; removed commits are skipped by queries and cleaned out the next
+    //time the index is rebuilt.
+    //Return: true if the commit was in the index and was removed, false otherwise
+    //Parameters:
+    //  - id: the non-null ID (string) of the removed commit
+    public boolean remove(String id) {
+        if (stale) {
+            return false;
+        }
+        Integer ord = ordinals.remove(id);
+        if (ord == null) {
+            return false;
+        }
+        dead.set(ord);
+        deadCount++;
+        return true;
+    }
+
+    //This method marks the whole index as out of date (for example, after the commits of two
+    //repositories are interleaved). It is rebuilt from the repository before the next query.
+    public void invalidate() {
+        stale = true;
+    }
+
+    //Behavior: returns whether or not the index must be rebuilt before it can answer queries.
+    //This is the case after invalidate() has been called, or once more than half of the indexed
+    //commits have been removed.
+    //Return: true if the index needs to be rebuilt, false otherwise
+    public boolean needsRebuild() {
+        return stale || (deadCount > 0 && deadCount * 2 > commits.size());
+    }
+
+    //This method rebuilds the index from scratch from the given chain of commits.
+    //Parameters:
+    //  - head: the most recent commit of the repository (may be null)
+    //  - skip: the set of commits to leave out of the index (should be non-null)
+    public void rebuild(Repository.Commit head, Set<Repository.Commit> skip) {
+        List<Repository.Commit> chain = new ArrayList<>();
+        Repository.Commit curr = head;
+        while (curr != null) {
+            if (!skip.contains(curr)) {
+                chain.add(curr);
+            }
+            curr = curr.past;
+        }
+        clear();
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            add(chain.get(i));
+        }
+    }
+
+    //Behavior: finds the commits whose messages contain every one of the given terms.
+    //Return: the IDs of the matching commits, most recent first
+    //Parameters:
+    //  - queryTerms: the non-null terms to search for (matched case-insensitively)
+    public List<String> searchAll(String... queryTerms) {
+        List<String> result = new ArrayList<>();
+        if (queryTerms.length == 0) {
+            return result;
+        }
+        Postings[] lists = new Postings[queryTerms.length];
+        for (int i = 0; i < queryTerms.length; i++) {
+            lists[i] = terms.get(normalize(queryTerms[i]));
+            if (lists[i] == null) {
+                return result;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        Postings smallest = lists[0];
+        for (int i = smallest.size - 1; i >= 0; i--) {
+            int ord = smallest.ords[i];
+            boolean match = !dead.get(ord);
+            for (int j = 1; j < lists.length && match; j++) {
+                match = lists[j].contains(ord);
+            }
+            if (match) {
+                result.add(commits.get(ord).id);
+            }
+        }
+        return result;
+    }
+
+    //Behavior: finds the commits whose messages contain at least one of the given terms.
+    //Return: the IDs of the matching commits, most recent first
+    //Parameters:
+    //  - queryTerms: the non-null terms to search for (matched case-insensitively)
+    public List<String> searchAny(String... queryTerms) {
+        BitSet hits = new BitSet();
+        for (String term : queryTerms) {
+            mark(terms.get(normalize(term)), hits);
+        }
+        return collect(hits);
+    }
+
+    //Behavior: finds the commits whose messages contain a term starting with the given prefix.
+    //Return: the IDs of the matching commits, most recent first
+    //Parameters:
+    //  - prefix: the non-null, non-empty prefix to search for (matched case-insensitively)
+    public List<String> searchPrefix(String prefix) {
+        String start = normalize(prefix);
+        BitSet hits = new BitSet();
+        for (Postings postings : terms.subMap(start, start + Character.MAX_VALUE).values()) {
+            mark(postings, hits);
+        }
+        return collect(hits);
+    }
+
+    //This method sets the bit of every ordinal in the given posting list.
+    //Parameters:
+    //  - postings: the posting list to mark (may be null)
+    //  - hits: the non-null set of ordinals to add to
+    private void mark(Postings postings, BitSet hits) {
+        if (postings != null) {
+            for (int i = 0; i < postings.size; i++) {
+                hits.set(postings.ords[i]);
+            }
+        }
+    }
+
+    //Behavior: turns a set of ordinals into a list of commit IDs, skipping removed commits.
+    //Return: the IDs of the commits in the set, most recent first
+    //Parameters:
+    //  - hits: the non-null set of ordinals
+    private List<String> collect(BitSet hits) {
+        hits.andNot(dead);
+        List<String> result = new ArrayList<>(hits.cardinality());
+        for (int ord = hits.length() - 1; ord >= 0; ord = hits.previousSetBit(ord - 1)) {
+            result.add(commits.get(ord).id);
+        }
+        return result;
+    }
+
+    //Behavior: splits a commit message into lowercase terms. A term is a run of letters, digits,
+    //'-', '_' and '#' characters, so ticket numbers such as "BUG-1234" stay whole.
+    //Return: the distinct terms of the message
+    //Parameters:
+    //  - message: the message to split (may be null)
+    public static Set<String> tokenize(String message) {
+        Set<String> result = new LinkedHashSet<>();
+        if (message == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= message.length(); i++) {
+            boolean termChar = i < message.length() && isTermChar(message.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                result.add(message.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    //Behavior: normalizes a query term so it matches the terms stored in the index.
+    //Return: the term in lowercase with surrounding whitespace removed
+    //Parameters:
+    //  - term: the non-null term to normalize
+    private static String normalize(String term) {
+        return term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    //Behavior: checks whether the given character can be part of a term.
+    //Return: true if the character is a letter, digit, '-', '_' or '#', false otherwise
+    private static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '#';
+    }
+}
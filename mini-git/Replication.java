@@ -0,0 +1,283 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+//This class holds the two sides of delta replication between repositories that live in
+//different programs: a Leader that serves the commits of a repository over a loopback socket,
+//and a Follower that keeps a standby copy of that repository up to date.
+//
+//Protocol (one exchange per connection):
+//  - The follower sends its watermark, the ID and timestamp of its most recent commit
+//    (an empty ID and Long.MIN_VALUE if it has no commits).
+//  - The leader answers with one frame per commit made after the watermark, oldest first,
+//    followed by an end frame. A commit frame is the byte 1, then the commit's timestamp as a
+//    variable-length difference from the previous frame's timestamp, then its ID and its
+//    message as variable-length byte counts followed by UTF-8 bytes. The end frame is the
+//    byte 0.
+public class Replication {
+    private static final int COMMIT_FRAME = 1;
+    private static final int END_FRAME = 0;
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    //This class serves the commits of a repository to followers. Requests are answered on a
+    //background thread, which holds the repository's lock (see Repository) only while the
+    //commits to send are being collected, so the repository can keep changing while the
+    //leader is running.
+    public static class Leader implements Closeable {
+        private final Repository repo;
+        private final ServerSocket server;
+        private final Thread thread;
+        private long commitsSent;
+        private long bytesSent;
+
+        //This constructor starts a leader for the given repository on the given loopback port.
+        //Exception: if the port can't be opened, an IOException is thrown
+        //Parameters:
+        //  - repo: the non-null repository to serve
+        //  - port: the port to listen on, or 0 to use any free port
+        public Leader(Repository repo, int port) throws IOException {
+            this.repo = repo;
+            this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+            this.thread = new Thread(this::serve, "replication-leader-" + getPort());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        //This method returns the port the leader is listening on.
+        public int getPort() {
+            return server.getLocalPort();
+        }
+
+        //This method returns the number of commits sent to followers so far.
+        public synchronized long getCommitsSent() {
+            return commitsSent;
+        }
+
+        //This method returns the number of bytes sent to followers so far.
+        public synchronized long getBytesSent() {
+            return bytesSent;
+        }
+
+        //This method returns the average number of bytes sent per commit (0 if no commits
+        //have been sent).
+        public synchronized double getBytesPerCommit() {
+            return commitsSent == 0 ? 0.0 : (double) bytesSent / commitsSent;
+        }
+
+        //This method stops the leader.
+        public void close() throws IOException {
+            server.close();
+        }
+
+        //This method accepts and answers follower requests until the leader is closed.
+        private void serve() {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    socket.setSoTimeout(TIMEOUT_MILLIS);
+                    answer(socket);
+                } catch (IOException e) {
+                    // The follower went away or the leader was closed; wait for the next one
+                }
+            }
+        }
+
+        //This method answers one follower request on the given socket.
+        //Exception: if the connection fails, an IOException is thrown
+        private void answer(Socket socket) throws IOException {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            String id = in.readUTF();
+            long timeStamp = in.readLong();
+
+            List<Repository.Commit> commits = repo.getCommitsAfter(id.isEmpty() ? null : id,
+                                                                   timeStamp);
+
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            long previous = timeStamp == Long.MIN_VALUE ? 0 : timeStamp;
+            for (Repository.Commit commit : commits) {
+                out.writeByte(COMMIT_FRAME);
+                writeVarLong(out, zigZag(commit.timeStamp - previous));
+                writeString(out, commit.id);
+                writeString(out, commit.message);
+                previous = commit.timeStamp;
+            }
+            out.writeByte(END_FRAME);
+            synchronized (this) {
+                commitsSent += commits.size();
+                bytesSent += out.size();
+            }
+            out.flush();
+        }
+    }
+
+    //This class keeps a standby copy of a leader's repository up to date by pulling the
+    //commits it is missing.
+    public static class Follower {
+        private final Repository repo;
+        private final int port;
+        private long commitsReceived;
+        private long bytesReceived;
+        private long lastLagMillis;
+
+        //This constructor creates a follower that copies commits into the given repository from
+        //the leader on the given loopback port.
+        //Parameters:
+        //  - repo: the non-null repository to copy commits into
+        //  - port: the port the leader is listening on
+        public Follower(Repository repo, int port) {
+            this.repo = repo;
+            this.port = port;
+        }
+
+        //Behavior: this method asks the leader for every commit made after this follower's most
+        //recent commit and adds them to this follower's repository.
+        //Exception: if the leader can't be reached or the connection fails, an IOException is
+        //thrown
+        //Return: the number of commits added
+        public int pull() throws IOException {
+            Repository.Commit head = repo.getHeadCommit();
+            String watermarkId = head == null ? "" : head.id;
+            long watermark = head == null ? Long.MIN_VALUE : head.timeStamp;
+            // Commits in the same millisecond as the watermark may already be here (a commitAll
+            // batch shares one timestamp), so remember which ones are
+            Set<String> atWatermark = new HashSet<>();
+            if (head != null) {
+                for (Repository.Commit commit : repo.getCommitsAfter(null, watermark)) {
+                    atWatermark.add(commit.id);
+                }
+            }
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.setSoTimeout(TIMEOUT_MILLIS);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream()));
+                out.writeUTF(watermarkId);
+                out.writeLong(watermark);
+                out.flush();
+
+                CountingInputStream counter = new CountingInputStream(
+                        new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                DataInputStream in = new DataInputStream(counter);
+                int added = 0;
+                long previous = watermark == Long.MIN_VALUE ? 0 : watermark;
+                long newest = Long.MIN_VALUE;
+                while (in.readUnsignedByte() == COMMIT_FRAME) {
+                    long timeStamp = previous + unZigZag(readVarLong(in));
+                    String id = readString(in);
+                    String message = readString(in);
+                    previous = timeStamp;
+                    if (timeStamp != watermark || !atWatermark.contains(id)) {
+                        repo.replicate(id, timeStamp, message);
+                        added++;
+                        newest = timeStamp;
+                    }
+                }
+
+                commitsReceived += added;
+                bytesReceived += counter.count;
+                if (added > 0) {
+                    lastLagMillis = Math.max(0, System.currentTimeMillis() - newest);
+                }
+                return added;
+            }
+        }
+
+        //This method returns the number of commits received from the leader so far.
+        public long getCommitsReceived() {
+            return commitsReceived;
+        }
+
+        //This method returns the number of bytes received from the leader so far.
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        //This method returns the average number of bytes received per commit (0 if no commits
+        //have been received).
+        public double getBytesPerCommit() {
+            return commitsReceived == 0 ? 0.0 : (double) bytesReceived / commitsReceived;
+        }
+
+        //This method returns the replication lag of the most recent pull that added commits:
+        //how many milliseconds passed between the newest of those commits being made on the
+        //leader and it being added here.
+        public long getLastLagMillis() {
+            return lastLagMillis;
+        }
+    }
+
+    //This class wraps an input stream and counts the bytes read through it.
+    private static class CountingInputStream extends FilterInputStream {
+        public long count;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    //This method writes a non-negative number in as few bytes as possible, 7 bits per byte
+    //with the high bit set on every byte but the last.
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    //This method reads a number written by writeVarLong.
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b = in.readUnsignedByte();
+        while ((b & 0x80) != 0) {
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            b = in.readUnsignedByte();
+        }
+        return value | ((long) b << shift);
+    }
+
+    //This method writes a string as its UTF-8 byte count followed by its UTF-8 bytes.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    //This method reads a string written by writeString.
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //This method maps a signed number to a non-negative one so small negative differences
+    //stay small: 0, -1, 1, -2, 2, ... become 0, 1, 2, 3, 4, ...
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    //This method undoes zigZag.
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
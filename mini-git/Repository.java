@@ -1,11 +1,33 @@
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.text.SimpleDateFormat;
 
 //This class represents a repository--a chronoloical assembly of commits (edits made to a 
 //document). Commits are arranged so that the most recent ones appear first.
+//Every method holds the repository's lock (its monitor) while it runs, so threads can share a
+//repository; to make several calls in a row without other threads changing the repository in
+//between, hold the lock around them (as RepositoryRegistry does). Dropped commits are unlinked
+//by a compaction that runs on a background thread and takes the same lock.
 public class Repository {
+    private static final Executor COMPACTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "repository-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private String name;
-    private Commit node;
+    private volatile Commit node;
+    private MessageIndex index;
+    private Map<String, Commit> ids;
+    private Set<Commit> tombstones;
+    private int size;
+    private double compactionThreshold;
+    private int compactionCount;
+    private long lastCompactionNanos;
+    private long totalCompactionNanos;
+    private boolean compactionPending;
+    private int modCount;
       
     //This constructor initializes a new Repository object with a provided string to name the
     //repository.
@@ -19,37 +41,72 @@ public class Repository {
         }
         this.name = name;
         this.node = null;
+        this.index = null;
+        this.ids = new HashMap<>();
+        this.tombstones = new HashSet<>();
+        this.size = 0;
+        this.compactionThreshold = 0.25;
+    }
+
+    //This method turns on the message index for this repository, so that commits can be
+    //searched for by the words in their messages. The index is built from the commits already
+    //in the repository and kept up to date as commits are made. Does nothing if the index is
+    //already on.
+    public synchronized void enableMessageIndex() {
+        if (index == null) {
+            index = new MessageIndex();
+            index.rebuild(node, tombstones);
+        }
+    }
+
+    //This method turns off the message index for this repository, freeing its memory.
+    public synchronized void disableMessageIndex() {
+        index = null;
+    }
+
+    //This method returns whether or not the message index is turned on for this repository.
+    public synchronized boolean hasMessageIndex() {
+        return index != null;
     }
 
     //This method returns the ID of the most recent commit in the repository. If 
     //there are no commits, it returns null.
-    public String getRepoHead() {
-        if (node == null) {
+    public synchronized String getRepoHead() {
+        Commit head = live(node);
+        if (head == null) {
             return null;
         }
-        return node.id;
+        return head.id;
     }
 
     //This method returns the number of commits in the repository.   
-    public int getRepoSize() {
-        int counter = 0;
-        Commit currNode = node;
-        while (currNode != null) {
-            counter++;
-            currNode = currNode.past;
+    public synchronized int getRepoSize() {
+        return size - tombstones.size();
+    }
+
+    //Behavior: this method skips past dropped (tombstoned) commits that have not been unlinked
+    //from the repository yet.
+    //Return: the given commit if it has not been dropped, otherwise the most recent commit
+    //before it that has not been dropped (null if there is none)
+    //Parameters:
+    //  - curr: the commit to start from (may be null)
+    private Commit live(Commit curr) {
+        while (curr != null && tombstones.contains(curr)) {
+            curr = curr.past;
         }
-        return counter;
+        return curr;
     }
 
     //Behavior: This methode returns the string representation of an instance of Repository. 
     //Return: If there are no commits in the repository, it returns the name of the repository,
     //as well as the fact that there are no commits. Otherwise, it returns the name of the
     //repository and the string representation of the last commit in the repository.
-    public String toString() {
-        if (node == null) {
+    public synchronized String toString() {
+        Commit head = live(node);
+        if (head == null) {
             return name + " - No commits";
         }
-        return (name + " - Current head: " + node.toString());
+        return (name + " - Current head: " + head.toString());
     }
 
     //Behavior: checks if a commit in the repository has the same ID as the ID the user 
@@ -58,15 +115,18 @@ public class Repository {
     //returns true. Otherwise, it returns false.
     //Parameters:
     //  - targetId: the non-null ID (string) the user wants to check if the repository contains.
-    public boolean contains(String targetId) {
-        Commit currNode = node;
-        while (currNode != null) {
-            if (currNode.id.equals(targetId)) {
-                return true;
-            }
-            currNode = currNode.past;
-        }
-        return false;
+    public synchronized boolean contains(String targetId) {
+        Commit commit = ids.get(key(targetId));
+        return commit != null && commit.id.equals(targetId);
+    }
+
+    //Behavior: this method returns the key a commit ID is stored under in the map of commits
+    //by ID. IDs are matched case-insensitively by drop.
+    //Return: the key (string) for the given ID
+    //Parameters:
+    //  - id: the non-null ID (string) of a commit
+    private static String key(String id) {
+        return id.toLowerCase(Locale.ROOT);
     }
 
     //This method returns the the first n commits in the repository in backwards 
@@ -77,16 +137,16 @@ public class Repository {
     //Parameters:
     //  - n: the non-null, non-negative, and nonzero number of commits the user wants to see from
     //       the history (integer)
-    public String getHistory(int n) {
+    public synchronized String getHistory(int n) {
         if (n < 1) {
             throw new IllegalArgumentException("Invalid number of commits (must be at least 1.)");
         }
             
         String hist = "";
-        Commit currNode = node;
+        Commit currNode = live(node);
         while (currNode != null && n > 0) {
             hist += currNode.toString() + "\n";
-            currNode = currNode.past;
+            currNode = live(currNode.past);
             n--;
         }
         return hist;
@@ -96,42 +156,288 @@ public class Repository {
     //Return: the ID of the newly created commit
     //Parameter:
     //  - message: the non-null message (string) the created commit contains
-    public String commit(String message) {
+    public synchronized String commit(String message) {
         Commit temp = node;
         node = new Commit(message, temp);
+        size++;
+        ids.put(key(node.id), node);
+        if (index != null) {
+            index.add(node);
+        }
         return node.id;
     }
 
+    //Behavior: this method adds a new commit to the repository for each of the provided
+    //messages, in order, so the last message becomes the most recent commit. All of the new
+    //commits share one timestamp and get a contiguous block of IDs. The new commits are linked
+    //together before being added to the repository in a single step, so the repository is
+    //never seen with only part of the batch.
+    //Return: the ID of the most recent commit after the batch (null if the repository is still
+    //empty)
+    //Parameters:
+    //  - messages: the non-null list of non-null messages (strings) to commit
+    public synchronized String commitAll(List<String> messages) {
+        if (messages.isEmpty()) {
+            return getRepoHead();
+        }
+        long timeStamp = System.currentTimeMillis();
+        int firstId = Commit.reserveIds(messages.size());
+        Commit head = node;
+        for (int i = 0; i < messages.size(); i++) {
+            head = new Commit("" + (firstId + i), messages.get(i), timeStamp, head);
+            ids.put(key(head.id), head);
+        }
+        Commit oldHead = node;
+        node = head;
+        size += messages.size();
+
+        if (index != null) {
+            Commit[] added = new Commit[messages.size()];
+            Commit curr = head;
+            for (int i = added.length - 1; curr != oldHead; i--) {
+                added[i] = curr;
+                curr = curr.past;
+            }
+            for (Commit commit : added) {
+                index.add(commit);
+            }
+        }
+        return head.id;
+    }
+
+    //Behavior: this method adds a new commit to the repository for each message the provided
+    //iterator produces, in the same way as commitAll(List). Every message is read into memory
+    //before any commit is made (without holding the repository's lock), since the whole batch
+    //must be added in a single step with a contiguous block of IDs. To commit from a very long
+    //stream, call this once per chunk of the stream instead.
+    //Return: the ID of the most recent commit after the batch (null if the repository is still
+    //empty)
+    //Parameters:
+    //  - messages: the non-null iterator of non-null messages (strings) to commit
+    public String commitAll(Iterator<String> messages) {
+        List<String> batch = new ArrayList<>();
+        while (messages.hasNext()) {
+            batch.add(messages.next());
+        }
+        return commitAll(batch);
+    }
+
+    //Behavior: this method adds a commit that was made in another repository (for example, by
+    //replication), keeping its ID and timestamp. The commit becomes the most recent one.
+    //Parameters:
+    //  - id: the non-null ID (string) of the commit
+    //  - timeStamp: the time, in milliseconds, at which the commit was originally made
+    //  - message: the non-null message (string) of the commit
+    synchronized void replicate(String id, long timeStamp, String message) {
+        node = new Commit(id, message, timeStamp, node);
+        size++;
+        ids.put(key(id), node);
+        if (index != null) {
+            index.add(node);
+        }
+    }
+
+    //This method returns the most recent commit in the repository that has not been dropped,
+    //or null if there is none.
+    synchronized Commit getHeadCommit() {
+        return live(node);
+    }
+
+    //Behavior: this method finds the commits made after the given watermark commit. The walk
+    //stops at the watermark commit itself, or at the first commit older than the watermark's
+    //timestamp if the watermark commit is no longer in the repository.
+    //Return: the commits after the watermark, oldest first
+    //Parameters:
+    //  - id: the ID (string) of the watermark commit (may be null if there is none)
+    //  - timeStamp: the timestamp of the watermark commit
+    synchronized List<Commit> getCommitsAfter(String id, long timeStamp) {
+        List<Commit> result = new ArrayList<>();
+        Commit currNode = live(node);
+        while (currNode != null && !currNode.id.equals(id) && currNode.timeStamp >= timeStamp) {
+            result.add(currNode);
+            currNode = live(currNode.past);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    //Behavior: this method finds the commits whose messages contain all of the given terms.
+    //Terms are matched case-insensitively against the words of each message.
+    //Exception: if the message index is not turned on, an IllegalStateException is thrown
+    //Return: the IDs of the matching commits, most recent first
+    //Parameters:
+    //  - terms: the non-null terms (strings) to search for
+    public synchronized List<String> searchAll(String... terms) {
+        return readyIndex().searchAll(terms);
+    }
+
+    //Behavior: this method finds the commits whose messages contain at least one of the given
+    //terms. Terms are matched case-insensitively against the words of each message.
+    //Exception: if the message index is not turned on, an IllegalStateException is thrown
+    //Return: the IDs of the matching commits, most recent first
+    //Parameters:
+    //  - terms: the non-null terms (strings) to search for
+    public synchronized List<String> searchAny(String... terms) {
+        return readyIndex().searchAny(terms);
+    }
+
+    //Behavior: this method finds the commits whose messages contain a word starting with the
+    //given prefix (for example, "BUG-12" finds "BUG-123" and "BUG-1299").
+    //Exception: if the message index is not turned on, an IllegalStateException is thrown
+    //Return: the IDs of the matching commits, most recent first
+    //Parameters:
+    //  - prefix: the non-null prefix (string) to search for
+    public synchronized List<String> searchPrefix(String prefix) {
+        return readyIndex().searchPrefix(prefix);
+    }
+
+    //Behavior: this method returns the message index, first rebuilding it if drops or
+    //synchronization have left it out of date.
+    //Exception: if the message index is not turned on, an IllegalStateException is thrown
+    //Return: the up-to-date message index
+    private MessageIndex readyIndex() {
+        if (index == null) {
+            throw new IllegalStateException("Message index is not enabled for " + name + ".");
+        }
+        if (index.needsRebuild()) {
+            index.rebuild(node, tombstones);
+        }
+        return index;
+    }
+
     //Behavior: this method drops (removes) the commit in the repository whose ID matches the
-    //user's given target ID, if there is one.
+    //user's given target ID, if there is one. The commit is only marked as dropped (a
+    //tombstone) and is skipped by every other method from then on. The commit is found through
+    //the map of commits by ID, so dropping takes the same time wherever the commit is. It is
+    //physically unlinked from the repository by compact(), which is started on a background
+    //thread once the fraction of dropped commits goes over the compaction threshold.
     //Return: if a commit's ID matches the target ID and is removed from the repository, it 
     //returns true. If there is no commit whose ID matches the target ID, it returns false.
     //Parameters:
     //  - targetId: the non-null ID (string) of the commit the user wants removed from the 
     //              repository
-    public boolean drop(String targetId) {
-        if (this.node != null && this.node.id.equalsIgnoreCase(targetId)) {
-            this.node = this.node.past;
-            return true;
-        } 
-        Commit currNode = this.node;
-        while (currNode != null && currNode.past != null) {
-            if (currNode.past.id.equalsIgnoreCase(targetId)) {
-                currNode.past = currNode.past.past;
-                return true;
+    public synchronized boolean drop(String targetId) {
+        Commit target = ids.remove(key(targetId));
+        if (target == null) {
+            return false;
+        }
+        tombstones.add(target);
+        modCount++;
+        if (index != null) {
+            index.remove(target.id);
+        }
+        if (getTombstoneRatio() > compactionThreshold && !compactionPending) {
+            compactionPending = true;
+            COMPACTOR.execute(this::compactInBackground);
+        }
+        return true;
+    }
+
+    //This method runs on the background compaction thread: it compacts the repository if the
+    //fraction of dropped commits is still over the compaction threshold.
+    private synchronized void compactInBackground() {
+        compactionPending = false;
+        if (getTombstoneRatio() > compactionThreshold) {
+            compact();
+        }
+    }
+
+    //This method physically unlinks every dropped (tombstoned) commit from the repository,
+    //one run of consecutive dropped commits at a time, and records how long it took.
+    //Commits that are unlinked keep their own reference to the past, so a history walk that
+    //is in progress on a dropped commit still reaches the rest of the repository.
+    public synchronized void compact() {
+        if (tombstones.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int removed = 0;
+        while (node != null && tombstones.contains(node)) {
+            node = node.past;
+            removed++;
+        }
+        Commit currNode = node;
+        while (currNode != null) {
+            Commit next = currNode.past;
+            while (next != null && tombstones.contains(next)) {
+                next = next.past;
+                removed++;
             }
-            currNode = currNode.past;
+            currNode.past = next;
+            currNode = next;
+        }
+        size -= removed;
+        tombstones.clear();
+        modCount++;
+
+        lastCompactionNanos = System.nanoTime() - start;
+        totalCompactionNanos += lastCompactionNanos;
+        compactionCount++;
+    }
+
+    //This method sets the fraction of dropped commits above which the repository is compacted
+    //automatically. The default is 0.25.
+    //Exception: if the threshold is not greater than 0 and at most 1, an
+    //IllegalArgumentException is thrown
+    //Parameters:
+    //  - threshold: the fraction (double) of dropped commits that triggers compaction
+    public synchronized void setCompactionThreshold(double threshold) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Compaction threshold must be in (0, 1].");
         }
-        return false;
+        this.compactionThreshold = threshold;
+    }
+
+    //This method returns the fraction of the commits still stored in the repository that have
+    //been dropped but not yet unlinked (0 if the repository stores no commits).
+    public synchronized double getTombstoneRatio() {
+        return size == 0 ? 0.0 : (double) tombstones.size() / size;
+    }
+
+    //This method returns the number of times the repository has been compacted.
+    public synchronized int getCompactionCount() {
+        return compactionCount;
+    }
+
+    //This method returns how long, in nanoseconds, the most recent compaction took.
+    public synchronized long getLastCompactionNanos() {
+        return lastCompactionNanos;
+    }
+
+    //This method returns how long, in nanoseconds, all compactions have taken in total.
+    public synchronized long getTotalCompactionNanos() {
+        return totalCompactionNanos;
     }
     
     //Behavior: this method synchronizes the current repository with another repository by 
     //moving all the commits in the other repository to the current one and organizing them
     //so that all commits appear in chronological order (most recent commits first). After 
     //synchronization, the other repository is empty. 
+    //Both repositories' locks are held while they are synchronized, this one's first, so threads
+    //synchronizing the same two repositories should take their locks in a fixed order first (as
+    //RepositoryRegistry does).
     //Parameters:
     //  - other: the non-null repository to synchronize the current repository with
-    public void synchronize(Repository other) {
+    public synchronized void synchronize(Repository other) {
+        synchronized (other) {
+            merge(other);
+        }
+    }
+
+    //This method does the work of synchronize while both repositories are locked.
+    private void merge(Repository other) {
+        if (this.index != null) {
+            this.index.invalidate();
+        }
+        if (other.index != null) {
+            other.index.clear();
+        }
+        this.tombstones.addAll(other.tombstones);
+        other.tombstones.clear();
+        this.size += other.size;
+        other.size = 0;
+        this.modCount++;
+        other.modCount++;
         if (this.node == null) {
             this.node = other.node;
             other.node = null;
@@ -160,6 +466,230 @@ public class Repository {
                 other.node = null;
             }
         }
+
+        // The most recent commit with an ID is the one found by it
+        this.ids.clear();
+        other.ids.clear();
+        Commit currNode = live(this.node);
+        while (currNode != null) {
+            this.ids.putIfAbsent(key(currNode.id), currNode);
+            currNode = live(currNode.past);
+        }
+    }
+
+    //Behavior: this method squashes every commit except the newest 'keepNewest' commits into a
+    //single summary commit (see Squash), all at once.
+    //Exception: if keepNewest is less than 1, an IllegalArgumentException is thrown
+    //Return: the estimated number of bytes of memory reclaimed
+    //Parameters:
+    //  - keepNewest: the number of most recent commits to keep as they are (integer)
+    public synchronized long squash(int keepNewest) {
+        Squash squash = beginSquash(keepNewest);
+        boolean done = false;
+        while (!done) {
+            done = squash.step(Integer.MAX_VALUE);
+        }
+        return squash.getReclaimedBytes();
+    }
+
+    //Behavior: this method starts squashing every commit except the newest 'keepNewest'
+    //commits into a single summary commit. The work is done in steps (see Squash).
+    //Exception: if keepNewest is less than 1, an IllegalArgumentException is thrown
+    //Return: the squash that was started
+    //Parameters:
+    //  - keepNewest: the number of most recent commits to keep as they are (integer)
+    public synchronized Squash beginSquash(int keepNewest) {
+        if (keepNewest < 1) {
+            throw new IllegalArgumentException("Must keep at least 1 commit.");
+        }
+        return new Squash(keepNewest, Long.MAX_VALUE);
+    }
+
+    //Behavior: this method starts squashing every commit made before the given cutoff time into
+    //a single summary commit. The most recent commit is always kept, even if it is older than
+    //the cutoff. The work is done in steps (see Squash).
+    //Return: the squash that was started
+    //Parameters:
+    //  - cutoff: the time, in milliseconds; commits made before it are squashed
+    public synchronized Squash beginSquashBefore(long cutoff) {
+        return new Squash(1, cutoff);
+    }
+
+    //This class represents a squash in progress: the collapsing of all commits past a boundary
+    //commit into one SquashedCommit that keeps their count, the earliest and latest timestamps,
+    //and their messages (truncated). The work is split into steps of a bounded number of
+    //commits, so whoever is holding the repository's lock can release it between steps and
+    //let other threads make commits. The squash fails if the repository is dropped from,
+    //compacted or synchronized before it finishes.
+    public class Squash {
+        public static final int MAX_MESSAGE_LENGTH = 1000;
+
+        private final int keepNewest;
+        private final long cutoff;
+        private final int expectedModCount;
+        private Commit boundary;
+        private Commit cursor;
+        private int kept;
+        private boolean locating;
+        private boolean done;
+
+        private int squashedCount;
+        private int removedCount;
+        private long earliest;
+        private long latest;
+        private StringBuilder messages;
+        private List<Commit> droppedCommits;
+        private List<Commit> squashedCommits;
+        private long reclaimedBytes;
+
+        //This constructor starts a squash that keeps at least the newest 'keepNewest' commits,
+        //and any commits made at or after the cutoff time.
+        private Squash(int keepNewest, long cutoff) {
+            // Compact now rather than have the background compaction fail the squash
+            if (compactionPending) {
+                compact();
+            }
+            this.keepNewest = keepNewest;
+            this.cutoff = cutoff;
+            this.expectedModCount = modCount;
+            this.boundary = live(node);
+            this.cursor = boundary;
+            this.kept = boundary == null ? 0 : 1;
+            this.locating = true;
+            this.done = boundary == null;
+            this.earliest = Long.MAX_VALUE;
+            this.latest = Long.MIN_VALUE;
+            this.messages = new StringBuilder();
+            this.droppedCommits = new ArrayList<>();
+            this.squashedCommits = new ArrayList<>();
+        }
+
+        //Behavior: this method does the next part of the squash, looking at no more than
+        //'maxCommits' commits. The repository only changes in the last step.
+        //Exception: if the repository was dropped from, compacted or synchronized since the
+        //squash started, an IllegalStateException is thrown
+        //Return: true if the squash is finished, false if there is more to do
+        //Parameters:
+        //  - maxCommits: the largest number of commits (integer) to look at in this step
+        public boolean step(int maxCommits) {
+            synchronized (Repository.this) {
+                return doStep(maxCommits);
+            }
+        }
+
+        //This method does the work of step while the repository is locked.
+        private boolean doStep(int maxCommits) {
+            if (done) {
+                return true;
+            }
+            if (modCount != expectedModCount) {
+                throw new IllegalStateException("Repository changed during squash.");
+            }
+            int budget = maxCommits;
+            while (locating && budget > 0) {
+                Commit next = live(boundary.past);
+                if (next == null) {
+                    done = true;
+                    return true;
+                } else if (kept >= keepNewest && next.timeStamp < cutoff) {
+                    locating = false;
+                    cursor = boundary.past;
+                } else {
+                    boundary = next;
+                    kept++;
+                }
+                budget--;
+            }
+            while (cursor != null && budget > 0) {
+                fold(cursor);
+                cursor = cursor.past;
+                budget--;
+            }
+            if (cursor == null && !locating) {
+                finish();
+                return true;
+            }
+            return false;
+        }
+
+        //This method adds the given commit to the summary, or remembers it if it was dropped.
+        private void fold(Commit commit) {
+            removedCount++;
+            reclaimedBytes += estimateBytes(commit);
+            if (tombstones.contains(commit)) {
+                droppedCommits.add(commit);
+                return;
+            }
+            squashedCount++;
+            squashedCommits.add(commit);
+            earliest = Math.min(earliest, commit.timeStamp);
+            latest = Math.max(latest, commit.timeStamp);
+            if (messages.length() < MAX_MESSAGE_LENGTH) {
+                messages.append(messages.length() == 0 ? "" : "; ").append(commit.message);
+            }
+        }
+
+        //This method replaces the squashed commits with the summary commit.
+        private void finish() {
+            done = true;
+            Commit summary = null;
+            if (squashedCount > 0) {
+                String message = "Squashed " + squashedCount + " commits: " + messages;
+                if (message.length() > MAX_MESSAGE_LENGTH) {
+                    message = message.substring(0, MAX_MESSAGE_LENGTH - 3) + "...";
+                }
+                summary = new SquashedCommit("" + Commit.reserveIds(1), message, earliest,
+                                             latest, squashedCount);
+                reclaimedBytes -= estimateBytes(summary);
+            }
+            boundary.past = summary;
+            size += (summary == null ? 0 : 1) - removedCount;
+            tombstones.removeAll(droppedCommits);
+            for (Commit commit : squashedCommits) {
+                ids.remove(key(commit.id), commit);
+            }
+            if (summary != null) {
+                ids.put(key(summary.id), summary);
+            }
+            if (index != null) {
+                index.invalidate();
+            }
+            modCount++;
+        }
+
+        //This method returns whether or not the squash is finished.
+        public boolean isDone() {
+            return done;
+        }
+
+        //This method returns the number of commits (not counting dropped ones) squashed so far.
+        public int getSquashedCount() {
+            return squashedCount;
+        }
+
+        //This method returns the estimated number of bytes of memory reclaimed by the squash.
+        //The estimate is only final once the squash is done.
+        public long getReclaimedBytes() {
+            return reclaimedBytes;
+        }
+    }
+
+    //Behavior: this method estimates how much memory a commit takes up, counting the commit
+    //object and its ID and message strings (assuming compressed references and one byte per
+    //character).
+    //Return: the estimated size in bytes
+    //Parameters:
+    //  - commit: the non-null commit to measure
+    private static long estimateBytes(Commit commit) {
+        return 32 + estimateBytes(commit.id) + estimateBytes(commit.message);
+    }
+
+    //Behavior: this method estimates how much memory a string takes up.
+    //Return: the estimated size in bytes (0 for null)
+    //Parameters:
+    //  - s: the string to measure (may be null)
+    private static long estimateBytes(String s) {
+        return s == null ? 0 : 24 + ((16 + s.length() + 7) / 8) * 8;
     }
               
         
@@ -176,10 +706,20 @@ public class Repository {
      * class openly mention the fields of the class. This is fine 
      * because the fields of the Commit class are public. In general, 
      * be careful about revealing implementation details!
+     *
+     * Note: this class has been changed despite the marker above, because
+     * some commits can't get their identifier and timestamp from the
+     * public constructors. The counter is an AtomicInteger so that
+     * repositories can commit from several threads at once. The
+     * package-private constructor builds commits with an identifier and
+     * timestamp made elsewhere: commits copied in by replication, squash
+     * summaries, and batches from commitAll. reserveIds hands out the
+     * contiguous block of identifiers a batch needs. The public
+     * constructors, fields and methods are unchanged.
      */
      public static class Commit {
 
-        private static int currentCommitID;
+        private static final AtomicInteger currentCommitID = new AtomicInteger();
 
         /**
          * The time, in milliseconds, at which this commit was created.
@@ -209,9 +749,23 @@ public class Repository {
          *             commit.
          */
         public Commit(String message, Commit past) {
-            this.id = "" + currentCommitID++;
+            this("" + currentCommitID.getAndIncrement(), message, System.currentTimeMillis(),
+                 past);
+        }
+
+        /**
+         * Constructs a commit object with an identifier and timestamp that were
+         * generated ahead of time (for example, with reserveIds).
+         * @param id The unique identifier of this commit. Should be non-null.
+         * @param message A message describing the changes made in this commit. Should be non-null.
+         * @param timeStamp The time, in milliseconds, at which this commit was created.
+         * @param past A reference to the commit made immediately before this
+         *             commit.
+         */
+        Commit(String id, String message, long timeStamp, Commit past) {
+            this.id = id;
             this.message = message;
-            this.timeStamp = System.currentTimeMillis();
+            this.timeStamp = timeStamp;
             this.past = past;
         }
 
@@ -244,7 +798,17 @@ public class Repository {
         * Primarily for testing purposes.
         */
         public static void resetIds() {
-            Commit.currentCommitID = 0;
+            Commit.currentCommitID.set(0);
+        }
+
+        /**
+         * Reserves a contiguous block of unique identifiers in one atomic step.
+         * @param count The number of identifiers to reserve. Should be non-negative.
+         * @return The first identifier of the block; the block covers this
+         *         identifier and the (count - 1) identifiers after it.
+         */
+        static int reserveIds(int count) {
+            return Commit.currentCommitID.getAndAdd(count);
         }
     }
 }
@@ -0,0 +1,136 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+//This class represents a registry of named repositories that many threads can use at once.
+//Repositories are kept in a concurrent map, so creating and looking up repositories never
+//blocks, and every operation on a repository runs while holding that repository's own lock
+//(its monitor, the same lock Replication.Leader uses), so threads working on different
+//repositories never wait on each other.
+public class RepositoryRegistry {
+    private final ConcurrentMap<String, Repository> repos;
+
+    //This constructor creates a new, empty registry.
+    public RepositoryRegistry() {
+        this.repos = new ConcurrentHashMap<>();
+    }
+
+    //Behavior: this method creates a new, empty repository with the given name.
+    //Exception: if a repository with that name already exists, or the name is empty or null,
+    //an IllegalArgumentException is thrown
+    //Return: the new repository
+    //Parameters:
+    //  - name: the non-null, non-empty name (string) of the repository to create
+    public Repository create(String name) {
+        Repository repo = new Repository(name);
+        if (repos.putIfAbsent(name, repo) != null) {
+            throw new IllegalArgumentException("Repository with that name already exists.");
+        }
+        return repo;
+    }
+
+    //Behavior: this method looks up the repository with the given name.
+    //Return: the repository with the given name, or null if there is none
+    //Parameters:
+    //  - name: the non-null name (string) of the repository
+    public Repository get(String name) {
+        return repos.get(name);
+    }
+
+    //This method returns whether or not there is a repository with the given name.
+    public boolean contains(String name) {
+        return repos.containsKey(name);
+    }
+
+    //This method returns the number of repositories in the registry.
+    public int size() {
+        return repos.size();
+    }
+
+    //This method returns a view of all the repositories in the registry.
+    public Collection<Repository> getRepositories() {
+        return Collections.unmodifiableCollection(repos.values());
+    }
+
+    //Behavior: this method runs the given action on the repository with the given name while
+    //holding that repository's lock, so no other thread uses the repository at the same time.
+    //Exception: if there is no repository with the given name, an IllegalArgumentException is
+    //thrown
+    //Return: the result of the action
+    //Parameters:
+    //  - name: the non-null name (string) of the repository
+    //  - action: the non-null action to run on the repository
+    public <T> T withRepository(String name, Function<Repository, T> action) {
+        Repository repo = find(name);
+        synchronized (repo) {
+            return action.apply(repo);
+        }
+    }
+
+    //Behavior: this method synchronizes the repository with the given name with another
+    //repository, moving all of the other repository's commits into it (see
+    //Repository.synchronize). Both repositories are locked for the whole operation. The two
+    //locks are always taken in name order, so two threads synchronizing the same pair of
+    //repositories in opposite directions can't deadlock.
+    //Exception: if either repository doesn't exist, or both names are the same, an
+    //IllegalArgumentException is thrown
+    //Parameters:
+    //  - name: the non-null name (string) of the repository to synchronize into
+    //  - otherName: the non-null name (string) of the repository to take the commits from
+    public void synchronize(String name, String otherName) {
+        if (name.equals(otherName)) {
+            throw new IllegalArgumentException("Cannot synchronize the same repositories!");
+        }
+        Repository repo = find(name);
+        Repository other = find(otherName);
+        Repository first = name.compareTo(otherName) < 0 ? repo : other;
+        Repository second = first == repo ? other : repo;
+        synchronized (first) {
+            synchronized (second) {
+                repo.synchronize(other);
+            }
+        }
+    }
+
+    //Behavior: this method squashes every commit except the newest 'keepNewest' commits of the
+    //repository with the given name into a single summary commit (see Repository.Squash). The
+    //repository is locked for one step of at most 'batchSize' commits at a time, so other
+    //threads can keep committing to it while the squash runs.
+    //Exception: if there is no repository with the given name, or keepNewest or batchSize is
+    //less than 1, an IllegalArgumentException is thrown. If the repository is dropped from,
+    //compacted or synchronized while the squash runs, an IllegalStateException is thrown.
+    //Return: the estimated number of bytes of memory reclaimed
+    //Parameters:
+    //  - name: the non-null name (string) of the repository
+    //  - keepNewest: the number of most recent commits to keep as they are (integer)
+    //  - batchSize: the largest number of commits to process while holding the lock (integer)
+    public long squash(String name, int keepNewest, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        Repository repo = find(name);
+        Repository.Squash squash;
+        synchronized (repo) {
+            squash = repo.beginSquash(keepNewest);
+        }
+        boolean done = false;
+        while (!done) {
+            synchronized (repo) {
+                done = squash.step(batchSize);
+            }
+        }
+        return squash.getReclaimedBytes();
+    }
+
+    //Behavior: this method looks up the repository with the given name.
+    //Exception: if there is no repository with the given name, an IllegalArgumentException is
+    //thrown
+    //Return: the repository with the given name
+    private Repository find(String name) {
+        Repository repo = repos.get(name);
+        if (repo == null) {
+            throw new IllegalArgumentException("Repository not recognized: " + name);
+        }
+        return repo;
+    }
+}
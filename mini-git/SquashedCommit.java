@@ -0,0 +1,27 @@
+//This class represents a commit that stands in for a run of older commits that were squashed
+//together to save memory. Its message summarizes the squashed commits, its timestamp is the
+//time of the latest of them, and it also keeps the time of the earliest one and how many
+//commits it replaced.
+public class SquashedCommit extends Repository.Commit {
+    public final long earliestTimeStamp;
+    public final int squashedCount;
+
+    //This constructor creates a new summary commit with no previous commit.
+    //Parameters:
+    //  - id: the non-null unique ID (string) of the summary commit
+    //  - message: the non-null summary message (string)
+    //  - earliestTimeStamp: the time, in milliseconds, of the earliest squashed commit
+    //  - latestTimeStamp: the time, in milliseconds, of the latest squashed commit
+    //  - squashedCount: the number of commits squashed (integer)
+    public SquashedCommit(String id, String message, long earliestTimeStamp,
+                          long latestTimeStamp, int squashedCount) {
+        super(id, message, latestTimeStamp, null);
+        this.earliestTimeStamp = earliestTimeStamp;
+        this.squashedCount = squashedCount;
+    }
+
+    //This method returns the time, in milliseconds, of the latest squashed commit.
+    public long getLatestTimeStamp() {
+        return timeStamp;
+    }
+}
@@ -81,6 +81,136 @@ public class Testing {
     }
 
 
+    @Test
+    public void testMessageIndexSearch() throws InterruptedException {
+        repo1.enableMessageIndex();
+        commitAll(repo1, new String[]{"Fix BUG-12 in parser", "Add docs", "Revert BUG-12 fix",
+                "Fix BUG-1299 crash"});
+
+        assertEquals(List.of("2", "0"), repo1.searchAll("bug-12"));
+        assertEquals(List.of("3", "2", "0"), repo1.searchAny("fix", "revert"));
+        assertEquals(List.of("2", "0"), repo1.searchAll("fix", "BUG-12"));
+        assertEquals(List.of("3", "2", "0"), repo1.searchPrefix("bug-12"));
+
+        assertTrue(repo1.drop("2"));
+        assertEquals(List.of("0"), repo1.searchAll("bug-12"));
+
+        commitAll(repo2, new String[]{"other BUG-12 fix"});
+        repo1.synchronize(repo2);
+        assertEquals(List.of("4", "0"), repo1.searchAll("bug-12"));
+    }
+
+    @Test
+    public void testDropTombstonesAndCompaction() throws InterruptedException {
+        String[] messages = new String[]{"one", "two", "three", "four", "five", "six", "seven",
+                "eight"};
+        commitAll(repo1, messages);
+        repo1.setCompactionThreshold(0.5);
+
+        assertTrue(repo1.drop("7"));
+        assertFalse(repo1.drop("7"));
+        assertTrue(repo1.drop("3"));
+        assertEquals(6, repo1.getRepoSize());
+        assertEquals("6", repo1.getRepoHead());
+        assertFalse(repo1.contains("3"));
+        assertEquals(0, repo1.getCompactionCount());
+        assertEquals(0.25, repo1.getTombstoneRatio(), 0.0001);
+        assertFalse(repo1.getHistory(8).contains("four"));
+
+        repo1.compact();
+        assertEquals(1, repo1.getCompactionCount());
+        assertEquals(0.0, repo1.getTombstoneRatio(), 0.0001);
+        assertEquals(6, repo1.getRepoSize());
+        assertEquals(6, repo1.getHistory(8).split("\n").length);
+    }
+
+    @Test
+    public void testCommitAllBatch() {
+        repo1.enableMessageIndex();
+        repo1.commit("before");
+        assertEquals("3", repo1.commitAll(List.of("a", "b", "c")));
+        assertEquals("3", repo1.getRepoHead());
+        assertEquals(4, repo1.getRepoSize());
+        testHistory(repo1, 4, new String[]{"before", "a", "b", "c"});
+        assertEquals(List.of("2"), repo1.searchAll("b"));
+
+        assertEquals("5", repo1.commitAll(List.of("d", "e").iterator()));
+        assertEquals("5", repo1.commitAll(new ArrayList<String>()));
+        assertEquals(6, repo1.getRepoSize());
+    }
+
+    @Test
+    public void testReplicationSendsOnlyNewCommits() throws Exception {
+        try (Replication.Leader leader = new Replication.Leader(repo1, 0)) {
+            Replication.Follower follower = new Replication.Follower(repo2, leader.getPort());
+            commitAll(repo1, new String[]{"one", "two", "three"});
+
+            assertEquals(3, follower.pull());
+            assertEquals(repo1.getHistory(3), repo2.getHistory(3));
+            assertEquals(0, follower.pull());
+
+            commitAll(repo1, new String[]{"four"});
+            assertEquals(1, follower.pull());
+            assertEquals("3", repo2.getRepoHead());
+            assertEquals(4, repo2.getRepoSize());
+            assertEquals(4, leader.getCommitsSent());
+            assertTrue(leader.getBytesPerCommit() > 0);
+        }
+    }
+
+    @Test
+    public void testRegistryConcurrentCommits() throws InterruptedException {
+        RepositoryRegistry registry = new RepositoryRegistry();
+        registry.create("a");
+        registry.create("b");
+        assertThrows(IllegalArgumentException.class, () -> registry.create("a"));
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            String name = t % 2 == 0 ? "a" : "b";
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    registry.withRepository(name, repo -> repo.commit("commit"));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2000, registry.get("a").getRepoSize());
+        assertEquals(2000, registry.get("b").getRepoSize());
+
+        registry.synchronize("b", "a");
+        assertEquals(4000, registry.get("b").getRepoSize());
+        assertEquals(0, registry.get("a").getRepoSize());
+    }
+
+    @Test
+    public void testSquashKeepsNewestCommits() throws InterruptedException {
+        commitAll(repo1, new String[]{"one", "two", "three", "four", "five", "six"});
+        assertTrue(repo1.drop("1"));
+
+        Repository.Squash squash = repo1.beginSquash(2);
+        assertFalse(squash.step(2));
+        repo1.commit("seven");
+        while (!squash.step(1)) {
+            repo1.commit("during squash");
+        }
+
+        assertEquals(3, squash.getSquashedCount());
+        assertTrue(squash.getReclaimedBytes() > 0);
+        String[] history = repo1.getHistory(repo1.getRepoSize()).split("\n");
+        assertTrue(history[history.length - 1].contains("Squashed 3 commits: four; three; one"));
+        assertTrue(history[history.length - 2].contains("five"));
+        assertFalse(repo1.contains("1"));
+        assertEquals(history.length, repo1.getRepoSize());
+
+        Repository.Squash stale = repo1.beginSquash(1);
+        repo1.drop(repo1.getRepoHead());
+        assertThrows(IllegalStateException.class, () -> stale.step(10));
+    }
+
     /////////////////////////////////////////////////////////////////////////////////
     // PROVIDED HELPER METHODS (You don't have to use these if you don't want to!) //
     /////////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,88 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Concurrent load test for RepositoryRegistry. For each thread count, every thread works on
+// its own group of repositories (committing, looking up heads and checking for commits) and
+// now and then synchronizes two repositories, one of them belonging to another thread. Prints
+// the total throughput, so the scaling with the number of threads can be read off directly.
+//
+// Compile and run from the mini-git directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out RegistryLoadTest [max threads] [operations per thread]
+public class RegistryLoadTest {
+    public static final int REPOS_PER_THREAD = 16;
+    public static final int SYNC_EVERY = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                                         : Runtime.getRuntime().availableProcessors();
+        int opsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+
+        System.out.printf("%8s %14s %14s%n", "threads", "ops/sec", "speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(threads, opsPerThread);     // warm up
+            double throughput = run(threads, opsPerThread);
+            if (threads == 1) {
+                baseline = throughput;
+            }
+            System.out.printf("%8d %14.0f %13.2fx%n", threads, throughput, throughput / baseline);
+        }
+    }
+
+    // Runs the load with the given number of threads, returning the operations per second
+    private static double run(int threads, int opsPerThread) throws Exception {
+        RepositoryRegistry registry = new RepositoryRegistry();
+        for (int t = 0; t < threads; t++) {
+            for (int r = 0; r < REPOS_PER_THREAD; r++) {
+                registry.create(name(t, r));
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                start.await();
+                work(registry, thread, threads, opsPerThread);
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        return (double) threads * opsPerThread / seconds;
+    }
+
+    // Performs the given number of operations on the repositories of the given thread
+    private static void work(RepositoryRegistry registry, int thread, int threads, int ops) {
+        Random rand = new Random(thread);
+        for (int i = 0; i < ops; i++) {
+            String name = name(thread, rand.nextInt(REPOS_PER_THREAD));
+            if (i % SYNC_EVERY == SYNC_EVERY - 1) {
+                String other = name(rand.nextInt(threads), rand.nextInt(REPOS_PER_THREAD));
+                if (!other.equals(name)) {
+                    registry.synchronize(name, other);
+                }
+            } else if (i % 4 == 0) {
+                registry.withRepository(name, repo -> repo.commit("load test"));
+            } else if (i % 4 == 1) {
+                registry.withRepository(name, repo -> repo.contains("missing"));
+            } else {
+                registry.withRepository(name, Repository::getRepoHead);
+            }
+        }
+    }
+
+    // Returns the name of the given repository of the given thread
+    private static String name(int thread, int repo) {
+        return "t" + thread + "-r" + repo;
+    }
+}
@@ -0,0 +1,237 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.*;
+
+// Benchmarks for the Repository operations at different repository sizes. For every operation
+// and size, prints the average time per operation and the average number of bytes allocated
+// per operation on the benchmark thread.
+//
+// Compile and run from the mini-git directory (large sizes need a large heap):
+//      javac -d out *.java benchmark/*.java
+//      java -Xmx12g -cp out RepositoryBenchmark 1000,1000000,10000000
+// With no arguments, the sizes 10^3 and 10^6 are used.
+public class RepositoryBenchmark {
+    public static final int WARMUP_ROUNDS = 3;
+    public static final int MEASURED_ROUNDS = 5;
+    public static final int COMMITS_PER_ROUND = 100000;
+    public static final int LOOKUPS_PER_ROUND = 10000;
+    public static final int HISTORIES_PER_ROUND = 100;
+    public static final int DROPS_PER_ROUND = 1000;
+    public static final int HISTORY_LENGTH = 100;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long nextId = 0;
+
+    // One operation being measured: 'prepare' builds the state the operation runs on (not
+    // measured), 'run' performs the operation ops() times on that state
+    private interface Benchmark {
+        Object prepare(int size);
+
+        void run(Object state);
+
+        default int ops() {
+            return 1;
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = {1000, 1000000};
+        if (args.length > 0) {
+            String[] parts = args[0].split(",");
+            sizes = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                sizes[i] = Integer.parseInt(parts[i].trim());
+            }
+        }
+
+        Map<String, Benchmark> benchmarks = benchmarks();
+        System.out.printf("%-24s %10s %14s %14s%n", "benchmark", "commits", "ns/op", "bytes/op");
+        for (int size : sizes) {
+            for (String name : benchmarks.keySet()) {
+                measure(name, benchmarks.get(name), size);
+            }
+        }
+    }
+
+    // Builds the table of benchmarks, in the order they are reported
+    private static Map<String, Benchmark> benchmarks() {
+        Map<String, Benchmark> table = new LinkedHashMap<>();
+        table.put("commit", simple(COMMITS_PER_ROUND, (repo, ops) -> {
+            for (int i = 0; i < ops; i++) {
+                repo.commit("benchmark commit");
+            }
+        }));
+        table.put("contains (oldest)", containsOldest());
+        table.put("contains (missing)", simple(LOOKUPS_PER_ROUND, (repo, ops) -> {
+            for (int i = 0; i < ops; i++) {
+                blackhole(repo.contains("missing"));
+            }
+        }));
+        table.put("getRepoSize", simple(LOOKUPS_PER_ROUND, (repo, ops) -> {
+            for (int i = 0; i < ops; i++) {
+                blackhole(repo.getRepoSize());
+            }
+        }));
+        table.put("getHistory(" + HISTORY_LENGTH + ")", simple(HISTORIES_PER_ROUND, (repo, ops) -> {
+            for (int i = 0; i < ops; i++) {
+                blackhole(repo.getHistory(HISTORY_LENGTH));
+            }
+        }));
+        table.put("drop (head)", dropAt(0.0));
+        table.put("drop (middle)", dropAt(0.5));
+        table.put("drop (tail)", dropAt(1.0));
+        table.put("synchronize (interleaved)", synchronize(true));
+        table.put("synchronize (disjoint)", synchronize(false));
+        return table;
+    }
+
+    // Runs the given benchmark at the given size, printing its results
+    private static void measure(String name, Benchmark benchmark, int size) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runRound(benchmark, size);
+        }
+        long nanos = 0;
+        long bytes = 0;
+        long ops = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long[] result = runRound(benchmark, size);
+            nanos += result[0];
+            bytes += result[1];
+            ops += result[2];
+        }
+        System.out.printf("%-24s %10d %14.1f %14.1f%n", name, size, (double) nanos / ops,
+                          (double) bytes / ops);
+    }
+
+    // Runs one round of the given benchmark, returning the elapsed nanoseconds, the bytes
+    // allocated and the number of operations performed
+    private static long[] runRound(Benchmark benchmark, int size) {
+        Object state = benchmark.prepare(size);
+        int ops = benchmark.ops();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        benchmark.run(state);
+        long nanos = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - startBytes;
+        return new long[]{nanos, bytes, ops};
+    }
+
+    // Returns a benchmark that runs the given operation on a freshly filled repository, which
+    // performs 'ops' operations per round
+    private static Benchmark simple(int ops, BiConsumer<Repository, Integer> operation) {
+        return new Benchmark() {
+            public Object prepare(int size) {
+                return filled("bench", size);
+            }
+
+            public void run(Object state) {
+                operation.accept((Repository) state, ops);
+            }
+
+            public int ops() {
+                return ops;
+            }
+        };
+    }
+
+    // Returns a benchmark that looks up the oldest commit of a freshly filled repository
+    // LOOKUPS_PER_ROUND times per round, finding its ID while preparing
+    private static Benchmark containsOldest() {
+        return new Benchmark() {
+            public Object prepare(int size) {
+                Repository repo = filled("bench", size);
+                return new Object[]{repo, oldestId(repo)};
+            }
+
+            public void run(Object state) {
+                Object[] args = (Object[]) state;
+                Repository repo = (Repository) args[0];
+                String oldest = (String) args[1];
+                for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+                    blackhole(repo.contains(oldest));
+                }
+            }
+
+            public int ops() {
+                return LOOKUPS_PER_ROUND;
+            }
+        };
+    }
+
+    // Returns a benchmark that drops DROPS_PER_ROUND commits (at most a tenth of the repository,
+    // so no compaction is started) starting at the given relative position (0 is the most recent
+    // commit, 1 the oldest) and moving towards the other end, so every drop hits a live commit
+    private static Benchmark dropAt(double position) {
+        return new Benchmark() {
+            private int drops;
+
+            public Object prepare(int size) {
+                Repository repo = filled("bench", size);
+                drops = Math.max(1, Math.min(DROPS_PER_ROUND, size / 10));
+                int head = Integer.parseInt(repo.getRepoHead());
+                int first = head - (int) Math.round(position * (size - drops));
+                String[] targets = new String[drops];
+                for (int i = 0; i < drops; i++) {
+                    targets[i] = "" + (position < 1.0 ? first - i : first - drops + 1 + i);
+                }
+                return new Object[]{repo, targets};
+            }
+
+            public void run(Object state) {
+                Object[] args = (Object[]) state;
+                Repository repo = (Repository) args[0];
+                for (String target : (String[]) args[1]) {
+                    blackhole(repo.drop(target));
+                }
+            }
+
+            public int ops() {
+                return drops;
+            }
+        };
+    }
+
+    // Returns a benchmark that synchronizes two repositories of half the size each, whose
+    // commits are either interleaved in time or one entirely newer than the other
+    private static Benchmark synchronize(boolean interleaved) {
+        return new Benchmark() {
+            public Object prepare(int size) {
+                Repository first = new Repository("first");
+                Repository second = new Repository("second");
+                for (int i = 0; i < size; i++) {
+                    Repository target = (interleaved ? i % 2 == 0 : i < size / 2) ? first : second;
+                    target.replicate("" + nextId++, i, "benchmark commit");
+                }
+                return new Repository[]{first, second};
+            }
+
+            public void run(Object state) {
+                Repository[] repos = (Repository[]) state;
+                repos[0].synchronize(repos[1]);
+            }
+        };
+    }
+
+    // Returns a new repository with the given name holding 'size' commits
+    private static Repository filled(String name, int size) {
+        Repository repo = new Repository(name);
+        List<String> messages = Collections.nCopies(size, "benchmark commit");
+        repo.commitAll(messages);
+        return repo;
+    }
+
+    // Returns the ID of the oldest commit in the given repository
+    private static String oldestId(Repository repo) {
+        return "" + (Integer.parseInt(repo.getRepoHead()) - repo.getRepoSize() + 1);
+    }
+
+    private static volatile Object sink;
+
+    // Keeps the JIT from discarding a result that is otherwise unused
+    private static void blackhole(Object value) {
+        sink = value;
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// This class represents a cache of predictions in front of another Classifier. Classifying a
+// datapoint equal to one classified recently returns the label found then, without asking the
+// model again. Datapoints are looked up by their hashCode and compared with equals, so they
+// must implement both by content (as Email and Song do); other datapoints are only found again
+// if they are the very same object.
+//
+// The cache holds at most a fixed number of labels, evicting the least recently used. It is
+// split into at most STRIPES stripes, each a LinkedHashMap in access order guarded by its own
+// lock, so that threads classifying in parallel (e.g. with classifyAll) rarely wait for each
+// other, and the model is never called while a lock is held. Swapping the model (see
+// setModel) empties the cache, so no prediction of the old model is ever returned for the new
+// one.
+public class CachingClassifier extends Classifier {
+    public static final int STRIPES = 16;
+
+    private final int capacity;
+    private volatile Generation current;
+
+    // The cache for one model: its stripes and how often they were hit
+    private static class Generation {
+        final Classifier model;
+        final Map<Classifiable, String>[] stripes;
+        final LongAdder hits;
+        final LongAdder misses;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Generation(Classifier model, int capacity) {
+            this.model = model;
+            this.stripes = new Map[Math.min(STRIPES, capacity)];
+            // Spread the capacity over the stripes, the first ones taking any remainder
+            for (int i = 0; i < stripes.length; i++) {
+                int stripeCapacity = capacity / stripes.length +
+                                     (i < capacity % stripes.length ? 1 : 0);
+                stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                    protected boolean removeEldestEntry(Map.Entry<Classifiable, String> eldest) {
+                        return size() > stripeCapacity;
+                    }
+                };
+            }
+            this.hits = new LongAdder();
+            this.misses = new LongAdder();
+        }
+
+        // Returns the stripe the provided datapoint belongs in
+        Map<Classifiable, String> stripe(Classifiable input) {
+            int hash = input.hashCode();
+            return stripes[((hash ^ (hash >>> 16)) & 0x7fffffff) % stripes.length];
+        }
+    }
+
+    // Constructs a new cache of at most 'capacity' predictions in front of the provided model
+    // 'model' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If 'capacity' is less than 1
+    public CachingClassifier(Classifier model, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.current = new Generation(model, capacity);
+    }
+
+    // Returns whether or not the model can classify the provided 'input' (this isn't cached)
+    // 'input' should be non-null.
+    public boolean canClassify(Classifiable input) {
+        return current.model.canClassify(input);
+    }
+
+    // Classifies the provided 'input', returning the cached label of an equal datapoint if
+    //      there is one, and otherwise the label the model gives it (which is then cached)
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified
+    public String classify(Classifiable input) {
+        Generation generation = current;
+        Map<Classifiable, String> stripe = generation.stripe(input);
+        String label;
+        synchronized (stripe) {
+            label = stripe.get(input);
+        }
+        if (label != null) {
+            generation.hits.increment();
+            return label;
+        }
+        generation.misses.increment();
+        label = generation.model.classify(input);
+        synchronized (stripe) {
+            stripe.put(input, label);
+        }
+        return label;
+    }
+
+    // Saves the model to the provided PrintStream 'ps' (the cache isn't saved)
+    // 'ps' should be non-null.
+    public void save(PrintStream ps) {
+        current.model.save(ps);
+    }
+
+    // Returns the model predictions are cached for
+    public Classifier getModel() {
+        return current.model;
+    }
+
+    // Swaps in the provided model, emptying the cache and resetting the hit and miss counts.
+    //      Classifications already running may still return the old model's labels, but never
+    //      cache them for the new one.
+    // 'model' should be non-null.
+    public void setModel(Classifier model) {
+        current = new Generation(model, capacity);
+    }
+
+    // Empties the cache and resets the hit and miss counts, keeping the same model
+    public void invalidate() {
+        setModel(current.model);
+    }
+
+    // Returns the number of classifications answered from the cache since the model was set
+    public long getHits() {
+        return current.hits.sum();
+    }
+
+    // Returns the number of classifications the model had to answer since the model was set
+    public long getMisses() {
+        return current.misses.sum();
+    }
+
+    // Returns the fraction of classifications answered from the cache since the model was set
+    //      (0 if there haven't been any)
+    public double getHitRate() {
+        Generation generation = current;
+        long hits = generation.hits.sum();
+        long total = hits + generation.misses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    // Returns the number of predictions currently cached
+    public int size() {
+        int size = 0;
+        for (Map<Classifiable, String> stripe : current.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    // Returns the largest number of predictions the cache holds
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,415 @@
+import java.util.*;
+import java.util.stream.*;
+
+// Trains a ClassificationTree top-down with the CART algorithm, instead of inserting datapoints
+// one at a time. Every node is split on the feature and threshold that leave the children
+// purest (by Gini impurity or entropy), and nodes stop splitting at a maximum depth, a minimum
+// leaf size, or once no split makes them any purer. The result doesn't depend on the order of
+// the training data.
+//
+// Each feature's values are sorted once up front. The datapoints of every node are kept as a
+// range of those sorted orders, and splitting a node partitions the range in place, keeping it
+// sorted, so the best threshold for a feature is found with a single sweep over the range. The
+// features of large nodes are searched in parallel on the current fork-join pool.
+public class CartTrainer extends TreeTrainer {
+    // Trains and returns a new tree on the provided data and labels, like train, but returns it
+    //      in frozen form
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    public FrozenClassificationTree trainFrozen(List<Classifiable> data, List<String> labels) {
+        Dataset dataset = dataset(data, labels);
+        int[] rows = new int[data.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return train(dataset, rows, dataset.features.length, null);
+    }
+
+    // Returns the dataset this trainer would train on for the provided data and labels
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    Dataset dataset(List<Classifiable> data, List<String> labels) {
+        return new Dataset(data, labels, getMaxFeatures());
+    }
+
+    // Returns a Sampler training trees on samples of the dataset for the provided data and
+    //      labels
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    Sampler sampler(List<Classifiable> data, List<String> labels) {
+        Dataset dataset = dataset(data, labels);
+        return new Sampler() {
+            public int featureCount() {
+                return dataset.features.length;
+            }
+
+            public FrozenClassificationTree train(int[] rows, int featuresPerSplit, Random rand) {
+                return CartTrainer.this.train(dataset, rows, featuresPerSplit, rand);
+            }
+        };
+    }
+
+    // Trains a tree on the provided rows of a dataset. A row may appear more than once (as in a
+    //      bootstrap sample). If 'featuresPerSplit' is less than the number of features, each
+    //      node only considers that many features, chosen at random with 'rand'.
+    // 'dataset' and 'rows' should be non-null, and 'rand' should be non-null if features are
+    //      chosen at random.
+    FrozenClassificationTree train(Dataset dataset, int[] rows, int featuresPerSplit,
+                                   Random rand) {
+        return new Builder(dataset, rows, featuresPerSplit, rand).build();
+    }
+
+    // The training data in the form the trainer works with: the labels numbered, and the values
+    // of every feature in a column together with the order that sorts the column. A Dataset can
+    // be shared by several trees (see RandomForest).
+    static class Dataset {
+        final Feature[] features;
+        final String[] labelNames;
+        final int[] labelIds;
+        final double[][] values;
+        final int[][] order;
+
+        // Builds the dataset for the provided data and labels, keeping at most 'maxFeatures'
+        //      features
+        // Throws an IllegalArgumentException
+        //      If the lists are empty or of different sizes, or the datapoints aren't all of
+        //      the same type
+        Dataset(List<Classifiable> data, List<String> labels, int maxFeatures) {
+            checkSizes(data, labels);
+            this.labelNames = labelNames(labels);
+            this.labelIds = labelIds(labels, labelNames);
+            this.features = chooseFeatures(data, maxFeatures);
+
+            this.values = new double[features.length][];
+            this.order = new int[features.length][];
+            IntStream.range(0, features.length).parallel().forEach(f -> {
+                values[f] = new double[data.size()];
+                for (int i = 0; i < data.size(); i++) {
+                    values[f][i] = data.get(i).get(features[f]);
+                }
+                order[f] = sortedOrder(values[f]);
+            });
+        }
+
+        // Checks that there is a label for every datapoint
+        // Throws an IllegalArgumentException
+        //      If the provided lists are empty or of different sizes
+        static void checkSizes(List<Classifiable> data, List<String> labels) {
+            if (data.isEmpty() || data.size() != labels.size()) {
+                throw new IllegalArgumentException("Data and labels provided are of different " +
+                                                   "length or are empty");
+            }
+        }
+
+        // Returns the distinct labels in sorted order, so that ties between labels don't depend
+        //      on the order of the data
+        static String[] labelNames(List<String> labels) {
+            return new TreeSet<>(labels).toArray(new String[0]);
+        }
+
+        // Returns the number of each label: its index within the provided sorted 'labelNames'
+        static int[] labelIds(List<String> labels, String[] labelNames) {
+            int[] labelIds = new int[labels.size()];
+            for (int i = 0; i < labels.size(); i++) {
+                labelIds[i] = Arrays.binarySearch(labelNames, labels.get(i));
+            }
+            return labelIds;
+        }
+
+        // Returns the at most 'maxFeatures' candidate features that are non-zero for the most
+        //      datapoints (ties by name, so the choice doesn't depend on iteration order)
+        // Throws an IllegalArgumentException
+        //      If the datapoints aren't all of the same type
+        static Feature[] chooseFeatures(List<Classifiable> data, int maxFeatures) {
+            Map<Feature, Integer> frequency = new HashMap<>();
+            for (Classifiable datapoint : data) {
+                if (datapoint.getClass() != data.get(0).getClass()) {
+                    throw new IllegalArgumentException("Datapoints are of different types");
+                }
+                for (Feature feature : datapoint.getCandidateFeatures()) {
+                    frequency.merge(feature, 1, Integer::sum);
+                }
+            }
+            return frequency.keySet().stream()
+                    .sorted(Comparator.comparing((Feature f) -> -frequency.get(f))
+                                      .thenComparing(Feature::getName))
+                    .limit(maxFeatures)
+                    .toArray(Feature[]::new);
+        }
+
+        // Returns the indices of the provided values in increasing order of value (ties in
+        //      increasing order of index). Columns of sparse data (such as word percentages) are
+        //      mostly zeros, so only the non-zero values are sorted, and the zeros are placed
+        //      between the negative and the positive values.
+        private static int[] sortedOrder(double[] column) {
+            int nonZero = 0;
+            for (double value : column) {
+                if (value != 0.0) {
+                    nonZero++;
+                }
+            }
+            double[] sorted = new double[nonZero];
+            int next = 0;
+            for (double value : column) {
+                if (value != 0.0) {
+                    sorted[next++] = value;
+                }
+            }
+            Arrays.sort(sorted);
+
+            // Sort each non-zero index by the rank of its value, packed above the index itself
+            long[] keys = new long[nonZero];
+            next = 0;
+            for (int i = 0; i < column.length; i++) {
+                if (column[i] != 0.0) {
+                    keys[next++] = ((long) Arrays.binarySearch(sorted, column[i]) << 32) | i;
+                }
+            }
+            Arrays.sort(keys);
+
+            int[] result = new int[column.length];
+            int position = 0;
+            int key = 0;
+            while (key < nonZero && sorted[(int) (keys[key] >>> 32)] < 0) {
+                result[position++] = (int) keys[key++];
+            }
+            for (int i = 0; i < column.length; i++) {
+                if (column[i] == 0.0) {
+                    result[position++] = i;
+                }
+            }
+            while (key < nonZero) {
+                result[position++] = (int) keys[key++];
+            }
+            return result;
+        }
+    }
+
+    // The best split found for a node on one feature
+    private static class Candidate {
+        final int feature;
+        final double threshold;
+        final double score;
+
+        Candidate(int feature, double threshold, double score) {
+            this.feature = feature;
+            this.threshold = threshold;
+            this.score = score;
+        }
+    }
+
+    // Grows one tree. The rows of every node are a range [start, end) of sorted[f] for every
+    // feature f, in increasing order of that feature's value. Nodes are numbered as they are
+    // created, so children always come after their parents, as FrozenClassificationTree needs.
+    private class Builder {
+        private final Dataset dataset;
+        private final int featuresPerSplit;
+        private final Random rand;
+        private final int[] rows;
+        private final int[][] sorted;
+        private final boolean[] goesLeft;
+        private final int[] buffer;
+        private final int[] allFeatures;
+
+        private int nodeCount;
+        private int[] featureOf;
+        private double[] thresholds;
+        private int[] left;
+        private int[] right;
+        private int[] labelOf;
+
+        Builder(Dataset dataset, int[] rows, int featuresPerSplit, Random rand) {
+            this.dataset = dataset;
+            this.featuresPerSplit = featuresPerSplit;
+            this.rand = rand;
+            this.goesLeft = new boolean[dataset.labelIds.length];
+            this.buffer = new int[rows.length];
+            this.allFeatures = IntStream.range(0, dataset.features.length).toArray();
+
+            // Lay out the rows in each feature's sorted order, repeating rows drawn more than once
+            int[] copies = new int[dataset.labelIds.length];
+            for (int row : rows) {
+                copies[row]++;
+            }
+            this.sorted = new int[dataset.features.length][rows.length];
+            for (int f = 0; f < sorted.length; f++) {
+                int next = 0;
+                for (int row : dataset.order[f]) {
+                    for (int c = 0; c < copies[row]; c++) {
+                        sorted[f][next++] = row;
+                    }
+                }
+            }
+
+            int capacity = 2 * rows.length;
+            this.featureOf = new int[capacity];
+            this.thresholds = new double[capacity];
+            this.left = new int[capacity];
+            this.right = new int[capacity];
+            this.labelOf = new int[capacity];
+            this.rows = rows;
+        }
+
+        // Grows the tree, returning it in frozen form
+        FrozenClassificationTree build() {
+            // Each entry is {node, start, end, depth}
+            Deque<int[]> pending = new ArrayDeque<>();
+            pending.push(new int[]{newNode(), 0, buffer.length, 0});
+            while (!pending.isEmpty()) {
+                int[] task = pending.pop();
+                int node = task[0];
+                int start = task[1];
+                int end = task[2];
+                int depth = task[3];
+
+                int[] counts = countLabels(start, end);
+                labelOf[node] = majority(counts);
+                featureOf[node] = -1;
+                left[node] = -1;
+                right[node] = -1;
+                int size = end - start;
+                if (depth >= getMaxDepth() || size < 2 * getMinLeafSize() ||
+                        counts[labelOf[node]] == size) {
+                    continue;
+                }
+
+                Candidate best = findBestSplit(start, end, counts);
+                if (best == null || best.score >= weightedImpurity(counts, size) - 1e-9) {
+                    continue;
+                }
+                int mid = partition(best, start, end);
+                featureOf[node] = best.feature;
+                thresholds[node] = best.threshold;
+                labelOf[node] = -1;
+                left[node] = newNode();
+                right[node] = newNode();
+                pending.push(new int[]{right[node], mid, end, depth + 1});
+                pending.push(new int[]{left[node], start, mid, depth + 1});
+            }
+
+            return new FrozenClassificationTree(dataset.features, dataset.labelNames,
+                    Arrays.copyOf(featureOf, nodeCount), Arrays.copyOf(thresholds, nodeCount),
+                    Arrays.copyOf(left, nodeCount), Arrays.copyOf(right, nodeCount),
+                    Arrays.copyOf(labelOf, nodeCount));
+        }
+
+        // Returns the number of the next node
+        private int newNode() {
+            return nodeCount++;
+        }
+
+        // Returns how many of the rows in [start, end) have each label
+        private int[] countLabels(int start, int end) {
+            // With no features, the rows are never partitioned, so they're all in one node
+            int[] rows = sorted.length > 0 ? sorted[0] : this.rows;
+            int[] counts = new int[dataset.labelNames.length];
+            for (int i = start; i < end; i++) {
+                counts[dataset.labelIds[rows[i]]]++;
+            }
+            return counts;
+        }
+
+        // Returns the features to consider for the next split
+        private int[] chooseFeatures() {
+            return chooseAtRandom(allFeatures, featuresPerSplit, rand);
+        }
+
+        // Returns the best split of the rows in [start, end) over the chosen features, or null
+        //      if none of them can split the rows. Ties go to the feature with the lowest index.
+        private Candidate findBestSplit(int start, int end, int[] counts) {
+            int[] features = chooseFeatures();
+            IntStream search = IntStream.range(0, features.length);
+            if ((long) (end - start) * features.length >= PARALLEL_THRESHOLD) {
+                search = search.parallel();
+            }
+            Candidate[] candidates = search.mapToObj(i -> bestSplit(features[i], start, end,
+                                                                    counts))
+                                           .toArray(Candidate[]::new);
+            Candidate best = null;
+            for (Candidate candidate : candidates) {
+                if (candidate != null && (best == null || candidate.score < best.score)) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+
+        // Returns the best split of the rows in [start, end) on the provided feature, or null if
+        //      there is none, by sweeping the rows in sorted order and moving one row at a time
+        //      from the right child to the left child
+        private Candidate bestSplit(int feature, int start, int end, int[] counts) {
+            int[] rows = sorted[feature];
+            double[] column = dataset.values[feature];
+            int size = end - start;
+            int[] leftCounts = new int[counts.length];
+            int[] rightCounts = counts.clone();
+            Candidate best = null;
+            for (int i = start; i < end - 1; i++) {
+                int label = dataset.labelIds[rows[i]];
+                leftCounts[label]++;
+                rightCounts[label]--;
+                int leftSize = i - start + 1;
+                if (leftSize < getMinLeafSize()) {
+                    continue;
+                } else if (size - leftSize < getMinLeafSize()) {
+                    break;
+                }
+                double value = column[rows[i]];
+                double next = column[rows[i + 1]];
+                if (value == next) {
+                    continue;
+                }
+                double score = weightedImpurity(leftCounts, leftSize) +
+                               weightedImpurity(rightCounts, size - leftSize);
+                if (best == null || score < best.score) {
+                    // Rounding can put the midpoint on 'value', which must go left
+                    double threshold = Split.midpoint(value, next);
+                    best = new Candidate(feature, value < threshold ? threshold : next, score);
+                }
+            }
+            return best;
+        }
+
+        // Partitions the rows in [start, end) of every feature's sorted order by the provided
+        //      split, rows going left first, keeping each side in sorted order. Returns where
+        //      the rows going right start.
+        private int partition(Candidate split, int start, int end) {
+            double[] column = dataset.values[split.feature];
+            int[] rows = sorted[split.feature];
+            int mid = start;
+            for (int i = start; i < end; i++) {
+                goesLeft[rows[i]] = column[rows[i]] < split.threshold;
+                if (goesLeft[rows[i]]) {
+                    mid++;
+                }
+            }
+            IntStream features = IntStream.range(0, sorted.length);
+            if ((long) (end - start) * sorted.length >= PARALLEL_THRESHOLD) {
+                features = features.parallel();
+                features.forEach(f -> partition(sorted[f], start, end, new int[end - start]));
+            } else {
+                features.forEach(f -> partition(sorted[f], start, end, buffer));
+            }
+            return mid;
+        }
+
+        // Stably partitions rows[start, end) so the rows going left come first, using 'spare'
+        //      to hold the rows going right
+        private void partition(int[] rows, int start, int end, int[] spare) {
+            int next = start;
+            int spareCount = 0;
+            for (int i = start; i < end; i++) {
+                if (goesLeft[rows[i]]) {
+                    rows[next++] = rows[i];
+                } else {
+                    spare[spareCount++] = rows[i];
+                }
+            }
+            System.arraycopy(spare, 0, rows, next, spareCount);
+        }
+    }
+}
@@ -11,9 +11,34 @@ public interface Classifiable {
     // Returns the numeric value corresponding to the provided feature for this instance.
     // 'feature' should be non-null.
     public double get(String feature);
+
+    // Returns the numeric value corresponding to the provided resolved feature for this
+    // instance. Implementations should override this to avoid re-parsing the feature name.
+    // 'feature' should be non-null.
+    public default double get(Feature feature) {
+        return get(feature.getName());
+    }
+
+    // Returns whether the provided resolved feature is one of the valid features for this
+    // datatype (whether its base feature is contained within getFeatures()).
+    // 'feature' should be non-null.
+    public default boolean supports(Feature feature) {
+        return getFeatures().contains(feature.getBase());
+    }
     
     // Returns a Set of all valid features for this datatype.
     public Set<String> getFeatures();
+
+    // Returns the resolved features a trainer should consider splitting on for this instance:
+    // every feature that can have a non-zero value for it. By default, the features of
+    // getFeatures().
+    public default Collection<Feature> getCandidateFeatures() {
+        List<Feature> features = new ArrayList<>();
+        for (String feature : getFeatures()) {
+            features.add(Feature.of(feature));
+        }
+        return features;
+    }
     
     // Returns a Split (feature and threshold) that segments this instance and provided 'other'
     // 'other' should be non-null
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.function.*;
 import java.io.*;
 
 //Sahana Sarangi
@@ -44,41 +45,112 @@ public class ClassificationTree extends Classifier {
 
 
     //This constructor creates a new classification tree by loading data from a file connected to
-    //the given scanner. 
+    //the given scanner. Exactly one tree is read, so the scanner is left at the line after it.
     //Parameters:
     //  - sc: a non-null Scanner object that scans over a file containing data to be loaded into
     //        the classification tree
     public ClassificationTree(Scanner sc) {
-        overallRoot = createTree(sc);
+        overallRoot = createTree(() -> sc.hasNextLine() ? sc.nextLine() : null);
     }
 
 
-    //Creates a new classification tree recursively using the data from a file connected
-    //to the given scanner object to create a nodes and their children where applicable.
-    //Return: if the scanner has no data to scan over (or the file is empty), the method
-    //returns null. If the file has data, the method returns the overallRoot of the created 
-    //classification tree (a ClassificationNode).
+    //This constructor creates a new classification tree by loading data from the given reader,
+    //in the same format as the Scanner constructor. Reading whole lines from a BufferedReader is
+    //much faster than going through a Scanner, so this is the one to use for large models.
+    //Exactly one tree is read, so the reader is left at the line after it.
+    //Exceptions: if reading from the reader fails, an IOException is thrown
     //Parameters:
-    //  - sc: a non-null Scanner object that scans over a file containing data to be loaded into
-    //        the classification tree
-    private ClassificationNode createTree(Scanner sc) {
-        if (!sc.hasNextLine()) {
-            return null;
-        } 
-        String currLine = sc.nextLine();
-        if (currLine.contains("Feature:")) {
-            String feature = currLine.substring(9);
-            double threshold = Double.parseDouble(sc.nextLine().substring(11));
-            ClassificationNode node = new ClassificationNode(new Split(feature, threshold));
-            node.left = createTree(sc);
-            node.right = createTree(sc);
-            return node;
-        } else {
-            return new ClassificationNode(currLine, null);
+    //  - reader: a non-null BufferedReader over a file containing data to be loaded into the
+    //            classification tree
+    public ClassificationTree(BufferedReader reader) throws IOException {
+        try {
+            overallRoot = createTree(() -> {
+                try {
+                    return reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
+
+
+    //Creates a new classification tree from the lines given by nextLine, which returns null
+    //once there are no more lines. The file lists the nodes in preorder, so every node read
+    //becomes a child of the closest split read before it that is still missing a child. Those
+    //splits are kept on an explicit stack instead of the call stack, so trees of any depth can
+    //be loaded.
+    //Exceptions: if a feature line isn't followed by a threshold line, an
+    //IllegalArgumentException is thrown
+    //Return: if there is no data to read (or the file is empty), the method returns null. If
+    //there is data, the method returns the overallRoot of the created classification tree (a
+    //ClassificationNode). If the lines run out before the tree is complete, the missing
+    //children are left null.
+    //Parameters:
+    //  - nextLine: a non-null supplier of the lines of a file containing data to be loaded into
+    //              the classification tree
+    private static ClassificationNode createTree(Supplier<String> nextLine) {
+        ClassificationNode root = null;
+        Deque<ClassificationNode> incomplete = new ArrayDeque<>();
+        do {
+            String currLine = nextLine.get();
+            if (currLine == null) {
+                break;
+            }
+            ClassificationNode node;
+            if (currLine.startsWith("Feature:")) {
+                String feature = currLine.substring(9);
+                String thresholdLine = nextLine.get();
+                if (thresholdLine == null) {
+                    throw new IllegalArgumentException("Missing threshold for feature: " +
+                                                       feature);
+                }
+                double threshold = Double.parseDouble(thresholdLine.substring(11));
+                node = new ClassificationNode(new Split(feature, threshold));
+            } else {
+                node = new ClassificationNode(currLine, null);
+            }
+
+            if (root == null) {
+                root = node;
+            } else if (incomplete.peek().left == null) {
+                incomplete.peek().left = node;
+            } else {
+                incomplete.pop().right = node;
+            }
+            if (node.split != null) {
+                incomplete.push(node);
+            }
+        } while (!incomplete.isEmpty());
+        return root;
+    }
     
 
+    //This constructor creates a new classification tree with the same splits and labels as the
+    //given frozen tree, for example one trained by CartTrainer. The new tree's leaves hold no
+    //data, like those of a loaded tree.
+    //Parameters:
+    //  - frozen: the non-null frozen tree to copy
+    public ClassificationTree(FrozenClassificationTree frozen) {
+        // Children come after their parents in a frozen tree, so build from the back
+        ClassificationNode[] nodes = new ClassificationNode[frozen.getNodeCount()];
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            Feature feature = frozen.getFeature(i);
+            if (feature == null) {
+                nodes[i] = new ClassificationNode(frozen.getLabel(i), null);
+            } else {
+                nodes[i] = new ClassificationNode(new Split(feature.getName(),
+                                                            frozen.getThreshold(i)));
+                nodes[i].left = nodes[frozen.getLeft(i)];
+                nodes[i].right = nodes[frozen.getRight(i)];
+            }
+        }
+        overallRoot = nodes.length == 0 ? null : nodes[0];
+    }
+
+
     //This constructor creates a new classification tree from scratch using two
     //lists--data and results--and processing them parallely.
     //Exceptions: if the data list is empty, the results list is empty, or if the size of the
@@ -101,22 +173,33 @@ public class ClassificationTree extends Classifier {
 
     //This method finds a location in the classification tree to insert a certain data point 
     //and its associated label (as a ClassificationNode), and then inserts the datapoint and
-    //label. It does this by traversing through the classification tree.
+    //label. It does this by walking down the classification tree in a loop (so trees of any
+    //depth can be trained), remembering the parent of the node the data point falls into.
     //Returns: the overallRoot (ClassificationNode object) of an updated subtree of the 
     //classification tree.
     //Parameters:
     //  - inputData: the non-null data to add to the classification tree (Classifiable object)
     //  - label: the non-null label associated with the data point to add to the tree (String)
-    //  - curr: the current node in the tree that the method is evaluating (ClassificationNode)
+    //  - root: the root of the subtree to insert into (ClassificationNode)
     private ClassificationNode build(Classifiable inputData, String newLabel, 
-            ClassificationNode curr) {
+            ClassificationNode root) {
+        ClassificationNode parent = null;
+        boolean isLeft = false;
+        ClassificationNode curr = root;
+        while (curr != null && curr.split != null) {
+            parent = curr;
+            isLeft = curr.split.evaluate(inputData);
+            curr = isLeft ? curr.left : curr.right;
+        }
+
+        ClassificationNode newNode;
         if (curr == null) {
-            return new ClassificationNode(newLabel, inputData);
-        } else if (curr.split == null && curr.label.equals(newLabel)) {
-            return curr;
-        } else if (curr.split == null) {
+            newNode = new ClassificationNode(newLabel, inputData);
+        } else if (curr.label.equals(newLabel)) {
+            return root;
+        } else {
             Split split = curr.data.partition(inputData);
-            ClassificationNode newNode = new ClassificationNode(split);
+            newNode = new ClassificationNode(split);
             if (split.evaluate(inputData)) {
                 newNode.left = new ClassificationNode(newLabel, inputData);
                 newNode.right = curr;
@@ -124,14 +207,16 @@ public class ClassificationTree extends Classifier {
                 newNode.left = curr;
                 newNode.right = new ClassificationNode(newLabel, inputData);
             }
+        }
+
+        if (parent == null) {
             return newNode;
-        } else if (curr.split.evaluate(inputData)) {
-            curr.left = build(inputData, newLabel, curr.left);
-            return curr;
+        } else if (isLeft) {
+            parent.left = newNode;
         } else {
-            curr.right = build(inputData, newLabel, curr.right);
-            return curr;
+            parent.right = newNode;
         }
+        return root;
     }
 
 
@@ -147,24 +232,20 @@ public class ClassificationTree extends Classifier {
 
 
     //This method determines whether or not the type of data in the given inputData can be
-    //classified using the classification tree recursively by traversing through it.
-    //Returns: if the type of data can be classified based on the current node the method is
-    //evaluating, the method returns true. Else, it returns false. If the classification tree
-    //is null, it returns false.
+    //classified using the classification tree by walking down it in a loop.
+    //Returns: if every split on the input's path uses a feature the input supports, the method
+    //returns true. Else, it returns false. If the classification tree is null, it returns false.
     //Parameters:
     //  - inputData: a non-null Classifiable object containing datapoints
+    //  - curr: the node in the tree to start from (ClassificationNode)
     private boolean canClassify(Classifiable inputData, ClassificationNode curr) {
-        if (curr == null) {
-            return false;
-        } else if (curr.split == null) {
-            return true;
-        } else if (!inputData.getFeatures().contains(curr.split.getFeature())) {
-            return false;
-        } else if (curr.split.evaluate(inputData)) {
-            return canClassify(inputData, curr.left);
-        } else {
-            return canClassify(inputData, curr.right);
+        while (curr != null && curr.split != null) {
+            if (!inputData.supports(curr.split.getHandle())) {
+                return false;
+            }
+            curr = curr.split.evaluate(inputData) ? curr.left : curr.right;
         }
+        return curr != null;
     }
 
 
@@ -180,20 +261,17 @@ public class ClassificationTree extends Classifier {
         return classify(inputData, overallRoot);
     }
 
-    //This method classifies the given Classifiable object (input) recursively by traversing
-    //the classification tree.
+    //This method classifies the given Classifiable object (input) by walking down the
+    //classification tree in a loop.
     //Returns: the tree's predicted label for the input (String)
     //Parameters:
     //  - input: a non-null Classifiable object containing datapoints
-    //  - curr: the current node in the tree that the method is evaluating (ClassifricationNode)
+    //  - curr: the node in the tree to start from (ClassificationNode)
     private String classify(Classifiable inputData, ClassificationNode curr) {
-        if (curr.split == null) {
-            return curr.label;
-        } else if (curr.split.evaluate(inputData)) {
-            return classify(inputData, curr.left);
-        } else {
-            return classify(inputData, curr.right);
+        while (curr.split != null) {
+            curr = curr.split.evaluate(inputData) ? curr.left : curr.right;
         }
+        return curr.label;
     }
 
     //This method saves the ClassificationTree to a given PrintStream
@@ -203,20 +281,85 @@ public class ClassificationTree extends Classifier {
         save(ps, overallRoot);
     }
 
-    //This method saves the classification tree to the given PrintStream recursively by 
-    //traversing through the classification tree.
+    //This method saves the classification tree to the given PrintStream in preorder, using an
+    //explicit stack of the nodes still to be saved so trees of any depth can be saved.
     //Parameters:
     //  - ps: the non-null PrintStream to save the classification tree to
-    //  - curr: the current node in the tree that the method is evaluating (a ClassifricationNode)
-    private void save(PrintStream ps, ClassificationNode curr) {
-        if (curr != null) {
+    //  - root: the root of the subtree to save (a ClassificationNode)
+    private void save(PrintStream ps, ClassificationNode root) {
+        Deque<ClassificationNode> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            ClassificationNode curr = stack.pop();
             if (curr.split == null) {
                 ps.println(curr.label);
             } else {
                 ps.println(curr.split.toString());
-                save(ps, curr.left);
-                save(ps, curr.right);
+                if (curr.right != null) {
+                    stack.push(curr.right);
+                }
+                if (curr.left != null) {
+                    stack.push(curr.left);
+                }
+            }
+        }
+    }
+
+
+    //This method compiles the classification tree into a CompiledClassificationTree, which
+    //classifies through a chain of MethodHandles with every split's feature and threshold
+    //bound in as constants. Later changes to this tree don't affect the compiled tree.
+    //Returns: the compiled form of the classification tree
+    public CompiledClassificationTree compile() {
+        return freeze().compile();
+    }
+
+    //This method freezes the classification tree into a FrozenClassificationTree, which packs
+    //the nodes into arrays in breadth-first order and classifies in a single iterative pass.
+    //Later changes to this tree don't affect the frozen tree.
+    //Returns: the frozen form of the classification tree
+    public FrozenClassificationTree freeze() {
+        List<ClassificationNode> nodes = new ArrayList<>();
+        if (overallRoot != null) {
+            nodes.add(overallRoot);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            ClassificationNode curr = nodes.get(i);
+            if (curr.split != null) {
+                nodes.add(curr.left);
+                nodes.add(curr.right);
+            }
+        }
+
+        Map<Feature, Integer> featureIds = new LinkedHashMap<>();
+        Map<String, Integer> labelIds = new LinkedHashMap<>();
+        int[] featureOf = new int[nodes.size()];
+        double[] thresholds = new double[nodes.size()];
+        int[] left = new int[nodes.size()];
+        int[] right = new int[nodes.size()];
+        int[] labelOf = new int[nodes.size()];
+        int nextChild = 1;
+        for (int i = 0; i < nodes.size(); i++) {
+            ClassificationNode curr = nodes.get(i);
+            if (curr.split == null) {
+                featureOf[i] = -1;
+                labelOf[i] = labelIds.computeIfAbsent(curr.label, label -> labelIds.size());
+                left[i] = -1;
+                right[i] = -1;
+            } else {
+                featureOf[i] = featureIds.computeIfAbsent(curr.split.getHandle(),
+                                                          feature -> featureIds.size());
+                thresholds[i] = curr.split.getThreshold();
+                labelOf[i] = -1;
+                left[i] = nextChild;
+                right[i] = nextChild + 1;
+                nextChild += 2;
             }
         }
+        return new FrozenClassificationTree(featureIds.keySet().toArray(new Feature[0]),
+                                            labelIds.keySet().toArray(new String[0]),
+                                            featureOf, thresholds, left, right, labelOf);
     }
 }
@@ -1,5 +1,6 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 // This abstract class represents a Classifier, capable of assigning a label to a
 // Classifiable input using probability
@@ -25,10 +26,26 @@ public abstract class Classifier {
     // Parameters: ps - the PrintStream to save the classifier to, which should be non-null
     public abstract void save(PrintStream ps);
 
+    // Behavior: Classifies every datapoint within the provided 'data'. The datapoints are split
+    //           into chunks that are classified in parallel on the current fork-join pool (the
+    //           common pool, unless called from within another pool). Classifiers must
+    //           therefore be safe to call classify on from several threads at once.
+    // Exceptions: IllegalArgumentException if any of the datapoints can't be classified by this
+    //             classifier
+    // Returns: a list of the learned labels, where the label at index 'i' is the label of the
+    //          datapoint at the same index 'i' within 'data'
+    // Parameters: data - the list of Classifiable objects to classify. Should be non-null.
+    public List<String> classifyAll(List<Classifiable> data) {
+        String[] results = new String[data.size()];
+        new ClassifyTask(data, null, results, null, 0, 0, data.size()).invoke();
+        return Arrays.asList(results);
+    }
+
     // Behavior: Calculates the accuracy of this model on provided Lists of 
     //           testing 'data' and corresponding 'labels'. The label for a 
     //           datapoint at index 'i' within 'data' should be found at the 
-    //           same 'i' within 'labels'.
+    //           same 'i' within 'labels'. Datapoints are classified in parallel, as in
+    //           classifyAll.
     // Exceptions: IllegalArgumentException if:
     //      - the number of datapoints doesn't match the number of provided labels
     //      - any of the datapoints aren't able to be classified by this classifier
@@ -44,36 +61,159 @@ public abstract class Classifier {
                     String.format("Length of provided data [%d] doesn't match provided labels [%d]",
                                   data.size(), labels.size()));
         }
-        
-        // Create our total and correct maps for average calculation
-        Map<String, Integer> labelToTotal = new HashMap<>();
-        Map<String, Double> labelToCorrect = new HashMap<>();
-        labelToTotal.put("Overall", 0);
-        labelToCorrect.put("Overall", 0.0);
-        
-        for (int i = 0; i < data.size(); i++) {
-            // Check to make sure we can classify this datapoint
-            if (!canClassify(data.get(i))) {
-               throw new IllegalArgumentException("Can't classify provided datapoint: " +
-                                                  data.get(i));
+
+        // Number the distinct labels so the tallies can be kept in primitive arrays
+        Map<String, Integer> labelToId = new LinkedHashMap<>();
+        int[] labelIds = new int[labels.size()];
+        for (int i = 0; i < labels.size(); i++) {
+            Integer id = labelToId.get(labels.get(i));
+            if (id == null) {
+                id = labelToId.size();
+                labelToId.put(labels.get(i), id);
             }
+            labelIds[i] = id;
+        }
 
-            String result = classify(data.get(i));
-            String label = labels.get(i);
+        int[][] tallies = new ClassifyTask(data, labels, null, labelIds, labelToId.size(), 0,
+                                           data.size()).invoke();
+        long[] total = Arrays.stream(tallies[0]).asLongStream().toArray();
+        long[] correct = Arrays.stream(tallies[1]).asLongStream().toArray();
+        return toAccuracies(labelToId, total, correct, data.size());
+    }
 
-            // Increment totals depending on resultant label
-            labelToTotal.put(label, labelToTotal.getOrDefault(label, 0) + 1);
-            labelToTotal.put("Overall", labelToTotal.get("Overall") + 1);
-            if (result.equals(label)) {
-                labelToCorrect.put(result, labelToCorrect.getOrDefault(result, 0.0) + 1);
-                labelToCorrect.put("Overall", labelToCorrect.get("Overall") + 1);
+    public static final int STREAM_BATCH_SIZE = 8192;
+
+    // Behavior: Calculates the accuracy of this model on the provided 'examples', which are
+    //           read STREAM_BATCH_SIZE at a time and classified in parallel a batch at a time,
+    //           as in classifyAll. Only one batch is held at once, so the examples can come
+    //           from a dataset much larger than memory (see DataLoader.stream).
+    // Exceptions: IllegalArgumentException if any of the datapoints aren't able to be
+    //             classified by this classifier
+    // Returns: a map storing the classification accuracy for each of the encountered labels when
+    //      classifying, as in calculateAccuracy(List, List)
+    // Parameters: examples - the iterator of labeled datapoints to classify. Should be non-null.
+    public Map<String, Double> calculateAccuracy(Iterator<LabeledExample> examples) {
+        Map<String, Integer> labelToId = new LinkedHashMap<>();
+        long[] total = new long[0];
+        long[] correct = new long[0];
+        long count = 0;
+
+        List<Classifiable> data = new ArrayList<>(STREAM_BATCH_SIZE);
+        List<String> labels = new ArrayList<>(STREAM_BATCH_SIZE);
+        int[] labelIds = new int[STREAM_BATCH_SIZE];
+        while (examples.hasNext()) {
+            data.clear();
+            labels.clear();
+            while (data.size() < STREAM_BATCH_SIZE && examples.hasNext()) {
+                LabeledExample example = examples.next();
+                Integer id = labelToId.get(example.getLabel());
+                if (id == null) {
+                    id = labelToId.size();
+                    labelToId.put(example.getLabel(), id);
+                }
+                labelIds[data.size()] = id;
+                data.add(example.getData());
+                labels.add(example.getLabel());
             }
+
+            int[][] tallies = new ClassifyTask(data, labels, null, labelIds, labelToId.size(), 0,
+                                               data.size()).invoke();
+            total = Arrays.copyOf(total, labelToId.size());
+            correct = Arrays.copyOf(correct, labelToId.size());
+            for (int i = 0; i < labelToId.size(); i++) {
+                total[i] += tallies[0][i];
+                correct[i] += tallies[1][i];
+            }
+            count += data.size();
         }
+        return toAccuracies(labelToId, total, correct, count);
+    }
 
-        // Turn totals into accuracy percentage
-        for (String label : labelToCorrect.keySet()) {
-            labelToCorrect.put(label, labelToCorrect.get(label) / labelToTotal.get(label));
+    // Turns the per-label totals and correct counts of 'count' classified datapoints into
+    // the accuracy of each label that was classified correctly at least once, plus "Overall"
+    private static Map<String, Double> toAccuracies(Map<String, Integer> labelToId,
+                                                    long[] total, long[] correct, long count) {
+        Map<String, Double> labelToCorrect = new HashMap<>();
+        long overallCorrect = 0;
+        for (String label : labelToId.keySet()) {
+            int id = labelToId.get(label);
+            overallCorrect += correct[id];
+            if (correct[id] > 0) {
+                labelToCorrect.put(label, (double) correct[id] / total[id]);
+            }
         }
+        labelToCorrect.put("Overall", (double) overallCorrect / count);
         return labelToCorrect;
     }
+
+    // This class represents the classification of a range of datapoints, split in half and
+    // classified in parallel until the ranges are small. Results can be stored into an array,
+    // and/or the number of datapoints and of correctly classified datapoints can be tallied per
+    // expected label.
+    private class ClassifyTask extends RecursiveTask<int[][]> {
+        private static final long serialVersionUID = 1L;
+        public static final int CHUNK_SIZE = 256;
+
+        private final List<Classifiable> data;
+        private final List<String> labels;
+        private final String[] results;
+        private final int[] labelIds;
+        private final int labelCount;
+        private final int start;
+        private final int end;
+
+        // Constructs a task classifying data[start, end) into 'results' (if non-null), and
+        // tallying against the expected 'labels' (numbered by 'labelIds') if they're non-null
+        public ClassifyTask(List<Classifiable> data, List<String> labels, String[] results,
+                            int[] labelIds, int labelCount, int start, int end) {
+            this.data = data;
+            this.labels = labels;
+            this.results = results;
+            this.labelIds = labelIds;
+            this.labelCount = labelCount;
+            this.start = start;
+            this.end = end;
+        }
+
+        // Classifies this task's range, returning the per-label totals and correct counts
+        protected int[][] compute() {
+            if (end - start > CHUNK_SIZE) {
+                int mid = (start + end) >>> 1;
+                ClassifyTask first = new ClassifyTask(data, labels, results, labelIds,
+                                                      labelCount, start, mid);
+                ClassifyTask second = new ClassifyTask(data, labels, results, labelIds,
+                                                       labelCount, mid, end);
+                first.fork();
+                int[][] tallies = second.compute();
+                int[][] firstTallies = first.join();
+                for (int i = 0; i < labelCount; i++) {
+                    tallies[0][i] += firstTallies[0][i];
+                    tallies[1][i] += firstTallies[1][i];
+                }
+                return tallies;
+            }
+
+            int[] total = new int[labelCount];
+            int[] correct = new int[labelCount];
+            for (int i = start; i < end; i++) {
+                // Check to make sure we can classify this datapoint
+                Classifiable datapoint = data.get(i);
+                if (!canClassify(datapoint)) {
+                    throw new IllegalArgumentException("Can't classify provided datapoint: " +
+                                                       datapoint);
+                }
+                String result = classify(datapoint);
+                if (results != null) {
+                    results[i] = result;
+                }
+                if (labelIds != null) {
+                    total[labelIds[i]]++;
+                    if (result.equals(labels.get(i))) {
+                        correct[labelIds[i]]++;
+                    }
+                }
+            }
+            return new int[][]{total, correct};
+        }
+    }
 }
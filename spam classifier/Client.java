@@ -1,5 +1,6 @@
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.*;
 import java.io.*;
 
 // Client class for interaction with Classifiers
@@ -7,12 +8,13 @@ public class Client {
     public static final String TRAIN_FILE = "data/songs/train.csv"; 
     public static final String TEST_FILE = "data/songs/test.csv";      
     public static final int LABEL_INDEX = 9; 
+    public static final int FOREST_SIZE = 50;
     // Very strange thing we're doing here - we're storing a method as a variable!
     // You should not do this in your homework as it's a forbidden feature, but if you're
     // interested in how this works, look up 'functional programming'!                
     public static final Function<List<String>, Classifiable> CONVERTER = Song::toClassifiable;
 
-    public static void main(String[] args) throws FileNotFoundException {
+    public static void main(String[] args) throws IOException {
         Scanner console = new Scanner(System.in);
         System.out.println("Welcome to the CSE 123 Classifier! " +
                            "To begin, enter your desired mode of operation:");
@@ -49,18 +51,23 @@ public class Client {
     }
 
     // Creates a classifier from a client provided information by either:
-    //      Loading a previously created model file or
-    //      Training a model from a provided dataset
+    //      Loading a previously created model file (a tree, text or binary, or a forest) or
+    //      Training a model from a provided dataset, one datapoint at a time, with CartTrainer
+    //      or as a RandomForest
     // Requires a Scanner connected to the console to retrieve user input
     // Throws a FileNotFoundException
     //      If one of the client provided files doesn't exist
-    private static Classifier createModel(Scanner console) throws FileNotFoundException {
+    // Throws an IOException
+    //      If the model file can't be read
+    private static Classifier createModel(Scanner console) throws IOException {
         System.out.println("1) Train classification model");
         System.out.println("2) Load model from file");
+        System.out.println("3) Train classification model with CART");
+        System.out.println("4) Train random forest");
         System.out.print("Enter your choice here: ");
 
         int choice = console.nextInt();
-        while (choice != 1 && choice != 2) {
+        while (choice != 1 && choice != 2 && choice != 3 && choice != 4) {
             System.out.print("Please enter a valid option from above: ");
             choice = console.nextInt();
         }
@@ -68,10 +75,22 @@ public class Client {
         if (choice == 1) {
             DataLoader loader = new DataLoader(TRAIN_FILE, LABEL_INDEX, CONVERTER);
             return new ClassificationTree(loader.getData(), loader.getLabels());
+        } else if (choice == 3) {
+            DataLoader loader = new DataLoader(TRAIN_FILE, LABEL_INDEX, CONVERTER);
+            return new CartTrainer().train(loader.getData(), loader.getLabels());
+        } else if (choice == 4) {
+            DataLoader loader = new DataLoader(TRAIN_FILE, LABEL_INDEX, CONVERTER);
+            return new RandomForest(loader.getData(), loader.getLabels(), FOREST_SIZE);
         } else {
             System.out.print("Please enter the path to the file you'd like to load: ");
-            Scanner input = new Scanner(new File(console.next()));
-            return new ClassificationTree(input);
+            String fileName = console.next();
+            if (FrozenClassificationTree.isBinary(fileName)) {
+                return FrozenClassificationTree.loadBinary(fileName);
+            }
+            boolean forest = RandomForest.isForest(fileName);
+            try (BufferedReader input = new BufferedReader(new FileReader(fileName))) {
+                return forest ? new RandomForest(input) : new ClassificationTree(input);
+            }
         }
     }
 
@@ -81,21 +100,21 @@ public class Client {
     //      If the provided testing dataset file doesn't exist
     private static void evalModel(Classifier c, String fileName) throws FileNotFoundException {
         DataLoader loader = new DataLoader(fileName, LABEL_INDEX, CONVERTER);
-        List<String> results = new ArrayList<>();
-        for (Classifiable data : loader.getData()) {
-            results.add(c.classify(data));
-        }
+        List<String> results = c.classifyAll(loader.getData());
         System.out.println("Results: " + results);
     }
 
     // Tests the given Classifier on the datapoints within the given testing file, printing out the
-    //      accuracies for labels encountered during testing
+    //      accuracies for labels encountered during testing. The file is streamed rather than
+    //      loaded, so it can be larger than memory.
     // Throws a FileNotFoundException
     //      If the provided testing dataset file doesn't exist
     private static void testModel(Classifier c, String fileName) throws FileNotFoundException {
-        DataLoader loader = new DataLoader(fileName, LABEL_INDEX, CONVERTER);
-        Map<String, Double> labelToAccuracy = c.calculateAccuracy(loader.getData(),
-                                                                  loader.getLabels());
+        Map<String, Double> labelToAccuracy;
+        try (Stream<LabeledExample> examples = DataLoader.stream(fileName, LABEL_INDEX,
+                                                                 CONVERTER, 0)) {
+            labelToAccuracy = c.calculateAccuracy(examples.iterator());
+        }
         for (String label : labelToAccuracy.keySet()) {
             System.out.println(label + ": " + labelToAccuracy.get(label));
         }
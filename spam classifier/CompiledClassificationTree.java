@@ -0,0 +1,129 @@
+import java.io.*;
+import java.lang.invoke.*;
+
+// This class represents a ClassificationTree compiled into a chain of MethodHandles, one per
+// node. A split becomes a guardWithTest whose test has the split's feature and threshold bound
+// in as constants, and whose branches are the handles of its children; a leaf becomes a
+// constant handle returning its label. Once the chain is hot, the JIT compiles it like
+// straight-line code specialized to this tree, with no node arrays left to walk.
+//
+// Nodes deeper than MAX_COMPILED_DEPTH are not compiled: the handle at that depth hands the
+// rest of the walk over to the frozen tree, so very deep trees can't overflow the stack.
+public class CompiledClassificationTree extends Classifier {
+    public static final int MAX_COMPILED_DEPTH = 12;
+
+    private static final MethodHandle BELOW;
+    private static final MethodHandle CLASSIFY_FROM;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            BELOW = lookup.findStatic(CompiledClassificationTree.class, "below",
+                    MethodType.methodType(boolean.class, Classifiable.class, Feature.class,
+                                          double.class));
+            CLASSIFY_FROM = lookup.findVirtual(FrozenClassificationTree.class, "classifyFrom",
+                    MethodType.methodType(String.class, Classifiable.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final FrozenClassificationTree frozen;
+    private final MethodHandle root;
+
+    // Constructs a new compiled tree from the provided frozen tree, which it keeps to check
+    //      whether datapoints can be classified, to save the tree and to classify below
+    //      MAX_COMPILED_DEPTH.
+    // 'frozen' should be non-null.
+    CompiledClassificationTree(FrozenClassificationTree frozen) {
+        this.frozen = frozen;
+        int count = frozen.getNodeCount();
+        if (count == 0) {
+            this.root = null;
+            return;
+        }
+
+        // Children come after their parents in the frozen tree, so depths can be found going
+        //      forward and handles built going backward
+        int[] depths = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (frozen.getFeature(i) != null && depths[i] < MAX_COMPILED_DEPTH) {
+                depths[frozen.getLeft(i)] = depths[i] + 1;
+                depths[frozen.getRight(i)] = depths[i] + 1;
+            }
+        }
+        MethodHandle[] handles = new MethodHandle[count];
+        for (int i = count - 1; i >= 0; i--) {
+            if (i > 0 && depths[i] == 0) {
+                continue;       // Below MAX_COMPILED_DEPTH, never reached by the chain
+            }
+            Feature feature = frozen.getFeature(i);
+            if (feature == null) {
+                handles[i] = MethodHandles.dropArguments(
+                        MethodHandles.constant(String.class, frozen.getLabel(i)), 0,
+                        Classifiable.class);
+            } else if (depths[i] == MAX_COMPILED_DEPTH) {
+                handles[i] = MethodHandles.insertArguments(CLASSIFY_FROM.bindTo(frozen), 1, i);
+            } else {
+                MethodHandle test = MethodHandles.insertArguments(BELOW, 1, feature,
+                                                                  frozen.getThreshold(i));
+                handles[i] = MethodHandles.guardWithTest(test, handles[frozen.getLeft(i)],
+                                                         handles[frozen.getRight(i)]);
+            }
+            // The children's handles are part of this one now. Every node has a single parent
+            //      (see FrozenClassificationTree.loadBinary), so nothing else needs them.
+            if (feature != null && depths[i] < MAX_COMPILED_DEPTH) {
+                handles[frozen.getLeft(i)] = null;
+                handles[frozen.getRight(i)] = null;
+            }
+        }
+        this.root = handles[0];
+    }
+
+    // Returns whether or not this tree can classify the provided 'input', i.e. whether every
+    //      split on its path through the tree uses a feature the input supports
+    // 'input' should be non-null.
+    public boolean canClassify(Classifiable input) {
+        return frozen.canClassify(input);
+    }
+
+    // Classifies the provided 'input', returning the learned label
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified
+    public String classify(Classifiable input) {
+        if (root == null) {
+            throw new IllegalArgumentException("Data provided is not classifiable.");
+        }
+        try {
+            return (String) root.invokeExact(input);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Saves this tree to the provided PrintStream 'ps', in the same format as
+    //      ClassificationTree.save
+    // 'ps' should be non-null.
+    public void save(PrintStream ps) {
+        frozen.save(ps);
+    }
+
+    // Returns the frozen tree this tree was compiled from
+    public FrozenClassificationTree getFrozenTree() {
+        return frozen;
+    }
+
+    // The test of every compiled split, with the split's feature and threshold bound in:
+    //      returns whether the provided 'input' falls below (<) the threshold
+    // Throws an IllegalArgumentException
+    //      If the input doesn't support the feature
+    private static boolean below(Classifiable input, Feature feature, double threshold) {
+        if (!input.supports(feature)) {
+            throw new IllegalArgumentException("Data provided is not classifiable.");
+        }
+        return input.get(feature) < threshold;
+    }
+}
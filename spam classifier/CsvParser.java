@@ -0,0 +1,205 @@
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Parses a CSV file one row at a time in a single pass over its characters. Fields are
+//      separated by commas and rows by line breaks ("\n", "\r\n" or "\r"). A field wrapped in
+//      double quotes may contain commas and line breaks, and a doubled quote ("") inside it
+//      stands for a single quote, as described in RFC 4180.
+// The current row is kept in buffers that are reused for every row, so reading a row doesn't
+//      allocate anything; a field only becomes a String when it is asked for.
+public class CsvParser implements Closeable {
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    // The states the parser can be in while reading a field
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final Reader in;
+    private final boolean keepQuotes;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean skipNewline;
+
+    private char[] chars;
+    private int length;
+    private int[] ends;
+    private int fieldCount;
+    private final List<String> fields;
+
+    // Constructs a new CsvParser reading from the provided Reader. If 'keepQuotes' is true,
+    //      quotes are left in the fields as they appear in the file and every quote starts or
+    //      ends a quoted section, which is how CsvReader has always split rows (and so what the
+    //      saved models were trained on). Otherwise quotes are removed as described in RFC 4180.
+    // 'in' should be non-null.
+    public CsvParser(Reader in, boolean keepQuotes) {
+        this.in = in;
+        this.keepQuotes = keepQuotes;
+        this.buffer = new char[BUFFER_SIZE];
+        this.chars = new char[256];
+        this.ends = new int[16];
+        this.fields = new FieldList();
+    }
+
+    // Returns a new CsvParser reading the provided file as UTF-8 (see the constructor for
+    //      'keepQuotes')
+    // 'fileName' should be non-null.
+    // Throws a FileNotFoundException
+    //      If the provided file doesn't exist
+    public static CsvParser open(String fileName, boolean keepQuotes)
+                                 throws FileNotFoundException {
+        return new CsvParser(new InputStreamReader(new FileInputStream(fileName),
+                                                   StandardCharsets.UTF_8), keepQuotes);
+    }
+
+    // Reads the next row of the file, replacing the current row. An empty line is read as a
+    //      row with a single empty field.
+    // Returns true if a row was read, or false if the end of the file was reached
+    // Throws an IOException
+    //      If the file can't be read
+    public boolean next() throws IOException {
+        length = 0;
+        fieldCount = 0;
+        int state = FIELD_START;
+        boolean started = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (started) {
+                    endField();
+                }
+                return started;
+            }
+            char c = buffer[position++];
+            if (skipNewline) {
+                skipNewline = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            started = true;
+            if (state == QUOTED) {
+                if (c != '"') {
+                    append(c);
+                } else if (keepQuotes) {
+                    append(c);
+                    state = UNQUOTED;
+                } else {
+                    state = QUOTE_IN_QUOTED;
+                }
+            } else if (c == ',') {
+                endField();
+                state = FIELD_START;
+            } else if (c == '\n' || c == '\r') {
+                skipNewline = c == '\r';
+                endField();
+                return true;
+            } else if (c == '"' && (keepQuotes || state != UNQUOTED)) {
+                // A quote opening a field, or the second quote of a doubled quote
+                if (keepQuotes || state == QUOTE_IN_QUOTED) {
+                    append(c);
+                }
+                state = QUOTED;
+            } else {
+                append(c);
+                state = UNQUOTED;
+            }
+        }
+    }
+
+    // Returns the number of fields in the current row
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // Returns the number of characters in the field at the provided index of the current row
+    // Throws an IndexOutOfBoundsException
+    //      If there is no field at the provided index
+    public int getFieldLength(int index) {
+        Objects.checkIndex(index, fieldCount);
+        return ends[index] - start(index);
+    }
+
+    // Returns the field at the provided index of the current row
+    // Throws an IndexOutOfBoundsException
+    //      If there is no field at the provided index
+    public String getField(int index) {
+        Objects.checkIndex(index, fieldCount);
+        return new String(chars, start(index), ends[index] - start(index));
+    }
+
+    // Returns a read-only view of the fields of the current row. The same view is returned for
+    //      every row and always shows the current one, so it shouldn't be kept after the next
+    //      call to next().
+    public List<String> getFields() {
+        return fields;
+    }
+
+    // Returns a copy of the current row that stays the same after the next call to next(),
+    //      leaving out empty fields at the end like String.split does (unless the row is a
+    //      single empty field, from an empty line). The copy can't be modified.
+    public List<String> copyRow() {
+        int count = fieldCount;
+        while (count > 0 && getFieldLength(count - 1) == 0) {
+            count--;
+        }
+        if (count == 0 && fieldCount == 1) {
+            count = 1;
+        }
+        String[] row = new String[count];
+        for (int i = 0; i < count; i++) {
+            row[i] = getField(i);
+        }
+        return List.of(row);
+    }
+
+    // Closes the underlying Reader
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Reads more characters into the buffer, returning false if there are none left
+    private boolean fill() throws IOException {
+        int read = in.read(buffer);
+        while (read == 0) {
+            read = in.read(buffer);
+        }
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    // Adds the provided character to the field being read
+    private void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, 2 * length);
+        }
+        chars[length++] = c;
+    }
+
+    // Ends the field being read
+    private void endField() {
+        if (fieldCount == ends.length) {
+            ends = Arrays.copyOf(ends, 2 * fieldCount);
+        }
+        ends[fieldCount++] = length;
+    }
+
+    // Returns the index in 'chars' where the field at the provided index starts
+    private int start(int index) {
+        return index == 0 ? 0 : ends[index - 1];
+    }
+
+    // A List view of the fields of the current row
+    private class FieldList extends AbstractList<String> implements RandomAccess {
+        public String get(int index) {
+            return getField(index);
+        }
+
+        public int size() {
+            return fieldCount;
+        }
+    }
+}
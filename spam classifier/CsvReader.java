@@ -7,15 +7,42 @@ public class CsvReader {
 
     // Reads data from the provided file, converting each line into its own List split on commas.
     //      The returned value can be thought of as a 2d array, just with Lists instead!
+    //      Quotes are kept in the fields, and empty fields at the end of a line are left out
+    //      (see CsvParser.copyRow). The rows can't be modified.
     // 'fileName' should be non-null.
     // Throws a FileNotFoundException
     //      If the provided file doesn't exist
+    // Throws an UncheckedIOException
+    //      If the file can't be read
     public static List<List<String>> read(String fileName) throws FileNotFoundException {
         List<List<String>> lines = new ArrayList<>();
-        
+
+        try (CsvParser parser = CsvParser.open(fileName, true)) {
+            parser.next();      // Skip the first row since it's just titles
+
+            while (parser.next()) {
+                lines.add(parser.copyRow());
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    // Reads data from the provided file the way read used to, splitting each line with the
+    //      COMMA regular expression. The regular expression looks at the rest of the line for
+    //      every comma, so this is slow on long lines; it is only kept to compare against.
+    // 'fileName' should be non-null.
+    // Throws a FileNotFoundException
+    //      If the provided file doesn't exist
+    public static List<List<String>> readWithRegex(String fileName) throws FileNotFoundException {
+        List<List<String>> lines = new ArrayList<>();
+
         Scanner sc = new Scanner(new File(fileName));
         sc.nextLine();      // Skip the first row since it's just titles
-        
+
         while (sc.hasNextLine()) {
             String line = sc.nextLine();
             lines.add(Arrays.asList(line.split(COMMA)));
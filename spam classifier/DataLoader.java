@@ -1,6 +1,11 @@
 import java.util.*;
 import java.util.function.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
 
 // This class represents a DataLoader capable of loading both data and labels from
 // A provided CSV file and manages them accordingly
@@ -14,20 +19,219 @@ public class DataLoader {
     // 'filePath' and 'toClassifiable' should be non-null.
     // Throws a FileNotFoundException
     //      If the provided file doesn't exist
+    // Throws an UncheckedIOException
+    //      If the file can't be read
     public DataLoader(String filePath, int labelIndex,
                       Function<List<String>, Classifiable> toClassifiable)
                       throws FileNotFoundException {
         this.data = new ArrayList<>();
         this.labels = new ArrayList<>();
         
-        List<List<String>> rows = CsvReader.read(filePath);
-        for (List<String> row : rows) {
-            this.data.add(toClassifiable.apply(row));
-            this.labels.add(row.get(labelIndex));
+        try (ExampleIterator examples = new ExampleIterator(filePath, labelIndex,
+                                                           toClassifiable)) {
+            while (examples.hasNext()) {
+                LabeledExample example = examples.next();
+                this.data.add(example.getData());
+                this.labels.add(example.getLabel());
+            }
         }
         DataLoader.shuffle(this);
     }
 
+    // Constructs a new DataLoader storing the given data and labels as they are
+    private DataLoader(List<Classifiable> data, List<String> labels) {
+        this.data = data;
+        this.labels = labels;
+    }
+
+    public static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    // Returns a new DataLoader storing and shuffling data from the given file, just like the
+    //      constructor, but reading the file on several threads (see the overload below). Use
+    //      that overload instead for datapoints that intern Vocabulary words, like Email, so the
+    //      words get the same IDs as when loading sequentially.
+    // 'filePath' and 'toClassifiable' should be non-null.
+    // Throws a FileNotFoundException
+    //      If the provided file doesn't exist
+    // Throws an UncheckedIOException
+    //      If the file can't be read
+    public static DataLoader loadParallel(String filePath, int labelIndex,
+                                          Function<List<String>, Classifiable> toClassifiable)
+                                          throws FileNotFoundException {
+        return loadParallel(filePath, labelIndex, toClassifiable, row -> List.of());
+    }
+
+    // Returns a new DataLoader storing and shuffling data from the given file, just like the
+    //      constructor, but reading the file on several threads. The file is memory-mapped and
+    //      split into byte ranges that each start at the beginning of a row (a line break
+    //      outside of quotes, so quoted line breaks are never split), and the ranges are parsed
+    //      and converted with 'toClassifiable' in parallel on the current fork-join pool. The
+    //      results are put back together in file order before shuffling, so the DataLoader is
+    //      the same as one built by the constructor. 'toWords' returns the Vocabulary words
+    //      converting a row interns, in order (like Email::words): the ranges are first only
+    //      split into words, and the words new to the Vocabulary are interned in file order
+    //      before any row is converted, so every word gets the ID it would get sequentially.
+    //      'toClassifiable' and 'toWords' must be safe to call from several threads at once.
+    //      Files too large to map are read sequentially.
+    // 'filePath', 'toClassifiable' and 'toWords' should be non-null.
+    // Throws a FileNotFoundException
+    //      If the provided file doesn't exist
+    // Throws an UncheckedIOException
+    //      If the file can't be read
+    public static DataLoader loadParallel(String filePath, int labelIndex,
+                                          Function<List<String>, Classifiable> toClassifiable,
+                                          Function<List<String>, List<String>> toWords)
+                                          throws FileNotFoundException {
+        ByteBuffer file;
+        try (RandomAccessFile raf = new RandomAccessFile(filePath, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                return new DataLoader(filePath, labelIndex, toClassifiable);
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Split the file into equal chunks and count the quotes in each, so the number of
+        //      quotes before the start of every chunk is known
+        int size = file.limit();
+        int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism()
+                                                        : ForkJoinPool.getCommonPoolParallelism();
+        int chunks = Math.max(1, Math.min(size / MIN_CHUNK_BYTES, 4 * parallelism));
+        int[] bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            bounds[i] = (int) ((long) size * i / chunks);
+        }
+        int[] quotes = IntStream.range(0, chunks).parallel()
+                                .map(i -> countQuotes(file, bounds[i], bounds[i + 1]))
+                                .toArray();
+
+        // Move the start of every chunk forward to the start of a row. The first chunk starts
+        //      after the first row, since it's just titles.
+        int[] starts = new int[chunks + 1];
+        boolean inQuotes = false;
+        for (int i = 0; i < chunks; i++) {
+            starts[i] = i == 0 ? rowEnd(file, 0, false) : rowStart(file, bounds[i], inQuotes);
+            inQuotes ^= quotes[i] % 2 == 1;
+        }
+        starts[chunks] = size;
+
+        // Parse the chunks in parallel, collecting the words each one would intern. Converting
+        //      rows straight away would give new words their IDs in whichever order the threads
+        //      got to them, and splits between emails break ties by the lowest ID.
+        List<Chunk> parts = IntStream.range(0, chunks).parallel()
+                .mapToObj(i -> parse(file, starts[i], Math.max(starts[i], starts[i + 1]),
+                                     labelIndex, toWords))
+                .collect(Collectors.toList());
+
+        // Give the new words their IDs in file order, then convert every row exactly once
+        for (Chunk part : parts) {
+            for (String word : part.newWords) {
+                Vocabulary.intern(word);
+            }
+        }
+        parts.parallelStream().forEach(part -> part.convert(toClassifiable));
+
+        List<Classifiable> data = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (Chunk part : parts) {
+            data.addAll(part.data);
+            labels.addAll(part.labels);
+        }
+        DataLoader loader = new DataLoader(data, labels);
+        DataLoader.shuffle(loader);
+        return loader;
+    }
+
+    // Returns the number of quote characters in file[start, end)
+    private static int countQuotes(ByteBuffer file, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (file.get(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Returns the index at which the first row starting at or after 'position' begins, given
+    //      whether or not 'position' is inside quotes (the file's length if there is none)
+    private static int rowStart(ByteBuffer file, int position, boolean inQuotes) {
+        if (position == 0) {
+            return position;
+        }
+        byte before = file.get(position - 1);
+        if (before == '\n' && !inQuotes) {
+            return position;
+        }
+        if (before == '\r' && !inQuotes) {
+            // A "\r\n" is a single line break, so the row starts after both
+            return position < file.limit() && file.get(position) == '\n' ? position + 1 : position;
+        }
+        return rowEnd(file, position, inQuotes);
+    }
+
+    // Returns the index just after the first line break ("\n", "\r\n" or "\r", like
+    //      CsvParser) outside of quotes at or after 'position', given whether or not
+    //      'position' is inside quotes (the file's length if there is none)
+    private static int rowEnd(ByteBuffer file, int position, boolean inQuotes) {
+        for (int i = position; i < file.limit(); i++) {
+            byte b = file.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                return i + 1;
+            } else if (b == '\r' && !inQuotes) {
+                return i + 1 < file.limit() && file.get(i + 1) == '\n' ? i + 2 : i + 1;
+            }
+        }
+        return file.limit();
+    }
+
+    // Parses the rows in file[start, end), collecting the words 'toWords' returns for them that
+    //      are new to the Vocabulary, in the order they first appear
+    private static Chunk parse(ByteBuffer file, int start, int end, int labelIndex,
+                               Function<List<String>, List<String>> toWords) {
+        Chunk chunk = new Chunk();
+        InputStream in = new ByteBufferInputStream(file.slice(start, end - start));
+        try (CsvParser parser = new CsvParser(new InputStreamReader(in, StandardCharsets.UTF_8),
+                                              true)) {
+            while (parser.next()) {
+                List<String> row = parser.copyRow();
+                chunk.rows.add(row);
+                chunk.labels.add(row.get(labelIndex));
+                for (String word : toWords.apply(row)) {
+                    if (Vocabulary.find(word) < 0) {
+                        chunk.newWords.add(word);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    // The rows of one chunk of a file, their labels and datapoints, and the words new to the
+    //      Vocabulary found in them
+    private static class Chunk {
+        private List<List<String>> rows = new ArrayList<>();
+        private List<String> labels = new ArrayList<>();
+        private List<Classifiable> data;
+        private Set<String> newWords = new LinkedHashSet<>();
+
+        // Converts every row into its datapoint
+        public void convert(Function<List<String>, Classifiable> toClassifiable) {
+            data = new ArrayList<>(rows.size());
+            for (List<String> row : rows) {
+                data.add(toClassifiable.apply(row));
+            }
+        }
+    }
+
     // Returns the List of Classifiable data points currently stored by this DataLoader
     public List<Classifiable> getData() {
         return this.data;
@@ -38,6 +242,39 @@ public class DataLoader {
         return this.labels;
     }
 
+    // Returns a Stream over the examples in the given file, where labels are taken from the
+    //      given index and 'toClassifiable' converts each row into its datapoint. Rows are read
+    //      from the file as the Stream is consumed, so only the examples in the shuffling window
+    //      are held in memory at once, however large the file is. If 'shuffleWindow' is greater
+    //      than 1, examples are shuffled within a window of that many examples: each example
+    //      returned is picked at random from the window, and its place is taken by the next
+    //      example in the file. Otherwise examples are returned in file order.
+    //      The Stream should be closed once it is no longer needed, to close the file.
+    // 'filePath' and 'toClassifiable' should be non-null.
+    // Throws a FileNotFoundException
+    //      If the provided file doesn't exist
+    // Throws an IllegalArgumentException
+    //      If 'shuffleWindow' is negative
+    // The returned Stream throws an UncheckedIOException
+    //      If the file can't be read
+    public static Stream<LabeledExample> stream(String filePath, int labelIndex,
+                                                Function<List<String>, Classifiable> toClassifiable,
+                                                int shuffleWindow) throws FileNotFoundException {
+        if (shuffleWindow < 0) {
+            throw new IllegalArgumentException("Shuffle window can't be negative: " +
+                                               shuffleWindow);
+        }
+        ExampleIterator examples = new ExampleIterator(filePath, labelIndex, toClassifiable);
+        Iterator<LabeledExample> iterator = examples;
+        if (shuffleWindow > 1) {
+            iterator = new WindowShuffler(examples, shuffleWindow,
+                                          new Random(RAND.nextInt(Integer.MAX_VALUE)));
+        }
+        Spliterator<LabeledExample> spliterator = Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(examples::close);
+    }
+
     public static final Random RAND = new Random();
 
     // Shuffles the data and labels stored by the provided DataLoader equally so each label
@@ -55,4 +292,120 @@ public class DataLoader {
         Collections.shuffle(data, new Random(seed));
         Collections.shuffle(labels, new Random(seed));
     }
+
+    // Reads the examples of a CSV file one row at a time. Each row is handed to the converter
+    //      as a copy that can be kept (see CsvParser.copyRow), like the rows of CsvReader.read.
+    private static class ExampleIterator implements Iterator<LabeledExample>, AutoCloseable {
+        private CsvParser parser;
+        private int labelIndex;
+        private Function<List<String>, Classifiable> toClassifiable;
+        private boolean hasNext;
+
+        // Opens the given file and skips its first row, since it's just titles
+        // Throws a FileNotFoundException
+        //      If the provided file doesn't exist
+        public ExampleIterator(String filePath, int labelIndex,
+                               Function<List<String>, Classifiable> toClassifiable)
+                               throws FileNotFoundException {
+            this.parser = CsvParser.open(filePath, true);
+            this.labelIndex = labelIndex;
+            this.toClassifiable = toClassifiable;
+            advance();
+            advance();
+        }
+
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        public LabeledExample next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            List<String> row = parser.copyRow();
+            LabeledExample example = new LabeledExample(toClassifiable.apply(row),
+                                                        row.get(labelIndex));
+            advance();
+            return example;
+        }
+
+        // Closes the file
+        public void close() {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Moves the parser on to the next row
+        private void advance() {
+            try {
+                hasNext = parser.next();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Shuffles the examples of another iterator within a window of a fixed number of examples
+    private static class WindowShuffler implements Iterator<LabeledExample> {
+        private Iterator<LabeledExample> source;
+        private List<LabeledExample> window;
+        private int windowSize;
+        private Random rand;
+
+        public WindowShuffler(Iterator<LabeledExample> source, int windowSize, Random rand) {
+            this.source = source;
+            this.window = new ArrayList<>();
+            this.windowSize = windowSize;
+            this.rand = rand;
+        }
+
+        public boolean hasNext() {
+            return !window.isEmpty() || source.hasNext();
+        }
+
+        public LabeledExample next() {
+            while (window.size() < windowSize && source.hasNext()) {
+                window.add(source.next());
+            }
+            if (window.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            // Move the chosen example to the end so it can be removed without shifting
+            int index = rand.nextInt(window.size());
+            int last = window.size() - 1;
+            LabeledExample example = window.get(index);
+            window.set(index, window.get(last));
+            window.remove(last);
+            return example;
+        }
+    }
+
+    // Reads the bytes of a ByteBuffer as an InputStream
+    private static class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
 }
@@ -1,30 +1,108 @@
 import java.util.*;
+import java.util.concurrent.*;
 
-// This class represents an Email storing information about the percentage of words found within
+// This class represents an Email storing information about the percentage of words found within.
+// Words are stored as a sparse vector: the sorted Vocabulary IDs of the distinct words in the
+// email, with the number of times each one occurs. Words that got no ID because the Vocabulary
+// was full are stored the same way, sorted as Strings.
 public class Email implements Classifiable {
     public static final Set<String> FEATURES = Set.of("wordPercent");
+    private static final int WORD_PERCENT = Feature.baseId("wordPercent");
+    // The wordPercent Feature of each Vocabulary ID, so at most Vocabulary.MAX_WORDS of them
+    private static final Map<Integer, Feature> WORD_FEATURES = new ConcurrentHashMap<>();
+    private static final String[] NO_WORDS = new String[0];
+    private static final int[] NO_COUNTS = new int[0];
     
-    private Map<String, Integer> words;
+    private int[] wordIds;
+    private int[] counts;
+    private String[] otherWords;
+    private int[] otherCounts;
     private double totalWords;
+    private int hash;
 
     // Constructs a new Email from the provided content String
     // 'content' should be non-null
     public Email(String content) {
-        this.words = new HashMap<>();
         parseContent(content);
+        hash = 31 * (31 * Arrays.hashCode(wordIds) + Arrays.hashCode(counts)) +
+               Arrays.hashCode(otherWords);
     }
 
-    // Helper method - parses the content from the provided content String,
-    //      populating the word -> count map and counting the total words/tokens
+    // Helper method - parses the content from the provided content String, splitting it into
+    //      words on whitespace, populating the sorted word ID and count arrays (and the other
+    //      word arrays, for words without an ID) and counting the total words/tokens
     private void parseContent(String content) {
-        Scanner sc = new Scanner(content);
-        while (sc.hasNext()) {
-            String word = sc.next();
-            if (!words.containsKey(word)) {
-                words.put(word, 0);
+        int[] ids = new int[16];
+        int tokens = 0;
+        List<String> others = null;
+        int start = -1;
+        for (int i = 0; i <= content.length(); i++) {
+            boolean space = i == content.length() || Character.isWhitespace(content.charAt(i));
+            if (!space && start < 0) {
+                start = i;
+            } else if (space && start >= 0) {
+                String word = content.substring(start, i);
+                int id = Vocabulary.intern(word);
+                if (id >= 0) {
+                    if (tokens == ids.length) {
+                        ids = Arrays.copyOf(ids, tokens * 2);
+                    }
+                    ids[tokens] = id;
+                    tokens++;
+                } else {
+                    if (others == null) {
+                        others = new ArrayList<>();
+                    }
+                    others.add(word);
+                }
+                start = -1;
             }
-            words.put(word, words.get(word) + 1);
-            totalWords++;
+        }
+        totalWords = tokens + (others == null ? 0 : others.size());
+        countOthers(others);
+
+        // Sort the IDs so repeats of a word are next to each other, then count each run
+        Arrays.sort(ids, 0, tokens);
+        int distinct = 0;
+        for (int i = 0; i < tokens; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                distinct++;
+            }
+        }
+        wordIds = new int[distinct];
+        counts = new int[distinct];
+        int next = -1;
+        for (int i = 0; i < tokens; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                next++;
+                wordIds[next] = ids[i];
+            }
+            counts[next]++;
+        }
+    }
+
+    // Helper method - populates the sorted other word and count arrays from the provided words
+    //      without a Vocabulary ID (null if there are none), like parseContent does for IDs
+    private void countOthers(List<String> others) {
+        if (others == null) {
+            otherWords = NO_WORDS;
+            otherCounts = NO_COUNTS;
+            return;
+        }
+        Collections.sort(others);
+        List<String> words = new ArrayList<>();
+        List<Integer> wordCounts = new ArrayList<>();
+        for (int i = 0; i < others.size(); i++) {
+            if (i == 0 || !others.get(i).equals(others.get(i - 1))) {
+                words.add(others.get(i));
+                wordCounts.add(0);
+            }
+            wordCounts.set(words.size() - 1, wordCounts.get(words.size() - 1) + 1);
+        }
+        otherWords = words.toArray(NO_WORDS);
+        otherCounts = new int[wordCounts.size()];
+        for (int i = 0; i < otherCounts.length; i++) {
+            otherCounts[i] = wordCounts.get(i);
         }
     }
 
@@ -33,6 +111,20 @@ public class Email implements Classifiable {
         return FEATURES;
     }
 
+    // Returns a wordPercent feature for every distinct word in this email, since every other
+    //      word has a percentage of 0
+    public Collection<Feature> getCandidateFeatures() {
+        List<Feature> features = new ArrayList<>(wordIds.length + otherWords.length);
+        for (int wordId : wordIds) {
+            features.add(WORD_FEATURES.computeIfAbsent(wordId, id -> Feature.of(
+                    "wordPercent" + Classifiable.SPLITTER + Vocabulary.word(id))));
+        }
+        for (String word : otherWords) {
+            features.add(Feature.of("wordPercent" + Classifiable.SPLITTER + word));
+        }
+        return features;
+    }
+
     // Returns the stored numeric value for the provided feature
     // 'feature' should be non-null
     // Throws IllegalArgumentException
@@ -53,9 +145,55 @@ public class Email implements Classifiable {
         return 0.0; // Mandatory return statement - should never reach
     }
 
+    // Returns the stored numeric value for the provided resolved feature
+    // 'feature' should be non-null
+    // Throws IllegalArgumentException
+    //      If provided feature is invalid, not contained within getFeatures()
+    public double get(Feature feature) {
+        if (feature.getBaseId() != WORD_PERCENT) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid feature [%s], not within possible features [%s]",
+                                  feature, FEATURES.toString()));
+        }
+        if (feature.getDetailId() < 0) {
+            return getWordPercentage(feature.getDetail());
+        }
+        return getWordPercentage(feature.getDetailId());
+    }
+
+    // Returns whether the provided resolved feature is valid for an email
+    // 'feature' should be non-null
+    public boolean supports(Feature feature) {
+        return feature.getBaseId() == WORD_PERCENT;
+    }
+
     // Helper method - calculates and returns the percentage occurance of the given word
     private double getWordPercentage(String word) {
-        return totalWords == 0 ? 0.0 : this.words.getOrDefault(word, 0) / totalWords;
+        if (word == null) {
+            return 0.0;
+        }
+        int id = Vocabulary.find(word);
+        return id >= 0 ? getWordPercentage(id) : getOtherWordPercentage(word);
+    }
+
+    // Helper method - calculates and returns the percentage occurance of the given word that
+    //      has no Vocabulary ID
+    private double getOtherWordPercentage(String word) {
+        if (otherWords.length == 0) {
+            return 0.0;
+        }
+        int index = Arrays.binarySearch(otherWords, word);
+        return index < 0 ? 0.0 : otherCounts[index] / totalWords;
+    }
+
+    // Helper method - calculates and returns the percentage occurance of the word with the
+    //      given Vocabulary ID (0 for a negative ID)
+    private double getWordPercentage(int wordId) {
+        if (totalWords == 0 || wordId < 0) {
+            return 0.0;
+        }
+        int index = Arrays.binarySearch(wordIds, wordId);
+        return index < 0 ? 0.0 : counts[index] / totalWords;
     }
 
     // Returns a Split representing the midpoint in difference between this and the provided
@@ -69,29 +207,109 @@ public class Email implements Classifiable {
 
         Email otherEmail = (Email) other;
 
-        // Find the word with the largest percentage difference between this and other
-        Set<String> allWords = new HashSet<>(this.words.keySet());
-        allWords.addAll(otherEmail.words.keySet());
-
-        String bestWord = null;
+        // Find the word with the largest percentage difference between this and other by
+        // walking the two sorted word ID arrays together, like the merge step of merge sort.
+        // A word found in only one of the emails has a percentage of 0 in the other.
+        int bestId = -1;
         double highestDiff = 0;
-        for (String word : allWords) {
-            double diff = this.getWordPercentage(word) - otherEmail.getWordPercentage(word);
-            diff = Math.abs(diff);
+        int i = 0;
+        int j = 0;
+        while (i < this.wordIds.length || j < otherEmail.wordIds.length) {
+            int id;
+            double diff;
+            if (j == otherEmail.wordIds.length ||
+                    (i < this.wordIds.length && this.wordIds[i] < otherEmail.wordIds[j])) {
+                id = this.wordIds[i];
+                diff = this.counts[i] / this.totalWords;
+                i++;
+            } else if (i == this.wordIds.length || otherEmail.wordIds[j] < this.wordIds[i]) {
+                id = otherEmail.wordIds[j];
+                diff = otherEmail.counts[j] / otherEmail.totalWords;
+                j++;
+            } else {
+                id = this.wordIds[i];
+                diff = Math.abs(this.counts[i] / this.totalWords -
+                                otherEmail.counts[j] / otherEmail.totalWords);
+                i++;
+                j++;
+            }
             if (diff > highestDiff) {
+                bestId = id;
+                highestDiff = diff;
+            }
+        }
+
+        String bestWord = bestId < 0 ? null : Vocabulary.word(bestId);
+
+        // Then the same for the words without an ID (only found once the Vocabulary is full)
+        i = 0;
+        j = 0;
+        while (i < this.otherWords.length || j < otherEmail.otherWords.length) {
+            int order = i == this.otherWords.length ? 1
+                      : j == otherEmail.otherWords.length ? -1
+                      : this.otherWords[i].compareTo(otherEmail.otherWords[j]);
+            String word = order <= 0 ? this.otherWords[i] : otherEmail.otherWords[j];
+            double thisPercent = order <= 0 ? this.otherCounts[i++] / this.totalWords : 0.0;
+            double otherPercent = order >= 0
+                                  ? otherEmail.otherCounts[j++] / otherEmail.totalWords : 0.0;
+            double diff = Math.abs(thisPercent - otherPercent);
+            if (diff > highestDiff) {
+                bestId = -1;
                 bestWord = word;
                 highestDiff = diff;
             }
         }
 
         // Calculate halfway between the two points
-        double halfway = Split.midpoint(this.getWordPercentage(bestWord),
-                                        otherEmail.getWordPercentage(bestWord));
+        double halfway = bestId >= 0
+                ? Split.midpoint(this.getWordPercentage(bestId),
+                                 otherEmail.getWordPercentage(bestId))
+                : Split.midpoint(this.getWordPercentage(bestWord),
+                                 otherEmail.getWordPercentage(bestWord));
         return new Split("wordPercent" + Classifiable.SPLITTER + bestWord, halfway);
     }
 
+    // Returns whether the provided object is an Email with exactly the same words as this one,
+    //      each occurring the same number of times (so it has the same value for every
+    //      feature)
+    public boolean equals(Object other) {
+        if (!(other instanceof Email)) {
+            return false;
+        }
+        Email otherEmail = (Email) other;
+        return hash == otherEmail.hash && totalWords == otherEmail.totalWords &&
+               Arrays.equals(wordIds, otherEmail.wordIds) &&
+               Arrays.equals(counts, otherEmail.counts) &&
+               Arrays.equals(otherWords, otherEmail.otherWords) &&
+               Arrays.equals(otherCounts, otherEmail.otherCounts);
+    }
+
+    // Returns a hash code of the words of this email and their counts, computed once when the
+    //      email is constructed
+    public int hashCode() {
+        return hash;
+    }
+
     // Creates and returns a Classifiable object from the provided row of email data
     public static Classifiable toClassifiable(List<String> row) {
         return new Email(row.get(1));
     }
+
+    // Returns the words of the provided row of email data, in the order toClassifiable interns
+    //      them (split on whitespace just like parseContent), without interning any of them
+    public static List<String> words(List<String> row) {
+        String content = row.get(1);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= content.length(); i++) {
+            boolean space = i == content.length() || Character.isWhitespace(content.charAt(i));
+            if (!space && start < 0) {
+                start = i;
+            } else if (space && start >= 0) {
+                words.add(content.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
 }
@@ -0,0 +1,96 @@
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Represents a feature name that has been resolved ahead of time, so that it can be looked up on
+// a Classifiable without splitting or comparing any Strings. A feature name such as
+// "wordPercent" + Classifiable.SPLITTER + "here" is resolved into its base feature
+// ("wordPercent"), a numeric ID for that base feature, and its interned detail ("here").
+// Features are interned as well: resolving the same name twice returns the same Feature, for
+// up to MAX_INTERNED names. Past that, a name not yet interned gets a new Feature every time it
+// is resolved, so the cache can't grow forever; Features are therefore compared by name.
+public final class Feature {
+    public static final int MAX_INTERNED = 1 << 21;
+
+    private static final ConcurrentMap<String, Feature> FEATURES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Integer> BASE_IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_BASE_ID = new AtomicInteger();
+
+    private final String name;
+    private final String base;
+    private final String detail;
+    private final int baseId;
+    private final int detailId;
+
+    // Constructs a new Feature by resolving the provided feature name
+    private Feature(String name) {
+        String[] parts = name.split(Classifiable.SPLITTER);
+        this.name = name;
+        this.base = parts.length == 0 ? "" : parts[0].intern();
+        this.detail = parts.length > 1 ? parts[1].intern() : null;
+        this.baseId = baseId(this.base);
+        this.detailId = detail == null ? -1 : Vocabulary.intern(detail);
+    }
+
+    // Returns the resolved Feature for the provided feature name
+    // 'name' should be non-null.
+    public static Feature of(String name) {
+        Feature feature = FEATURES.get(name);
+        if (feature != null) {
+            return feature;
+        }
+        if (FEATURES.size() >= MAX_INTERNED) {
+            return new Feature(name);
+        }
+        return FEATURES.computeIfAbsent(name, Feature::new);
+    }
+
+    // Returns the numeric ID of the provided base feature name (e.g. "wordPercent"). The same
+    //      name always gets the same ID, so Classifiable implementations can store the IDs of
+    //      their features as constants.
+    // 'base' should be non-null.
+    public static int baseId(String base) {
+        return BASE_IDS.computeIfAbsent(base, b -> NEXT_BASE_ID.getAndIncrement());
+    }
+
+    // Returns the full feature name, e.g. "wordPercent~here"
+    public String getName() {
+        return name;
+    }
+
+    // Returns the base feature name, the part before Classifiable.SPLITTER, e.g. "wordPercent"
+    public String getBase() {
+        return base;
+    }
+
+    // Returns the numeric ID of the base feature name
+    public int getBaseId() {
+        return baseId;
+    }
+
+    // Returns the interned detail of the feature, the part after Classifiable.SPLITTER
+    //      (e.g. "here"), or null if there isn't one
+    public String getDetail() {
+        return detail;
+    }
+
+    // Returns the Vocabulary ID of the detail of the feature, or -1 if there isn't one (or the
+    //      detail got no ID because the Vocabulary was full)
+    public int getDetailId() {
+        return detailId;
+    }
+
+    // Returns whether the provided object is a Feature with the same name as this one
+    public boolean equals(Object other) {
+        return other == this || (other instanceof Feature && name.equals(((Feature) other).name));
+    }
+
+    // Returns a hash code of the feature name
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    // Returns the full feature name
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,386 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// This class represents a ClassificationTree frozen into a compact form for fast
+// classification. The nodes are packed into parallel arrays with every node's children coming
+// after it (in breadth-first order when frozen from a ClassificationTree), and a datapoint is
+// validated and classified in a single iterative pass from the root. A frozen tree can't be
+// trained any further, but its nodes can be laid out again for locality (see
+// ProfiledClassificationTree.reorder).
+//
+// Besides the text format of ClassificationTree.save, a frozen tree can be saved in a binary
+// format (all numbers big-endian):
+//      - the magic bytes "CTRE" and the format version (int, BINARY_VERSION)
+//      - the number of features and of labels (int each), followed by the string table: the
+//        feature names and then the labels, each as a byte count (int) and UTF-8 bytes
+//      - zero padding up to a multiple of 8 bytes, then the number of nodes (int) and an
+//        unused int
+//      - one NODE_BYTES record per node, in the tree's order: the feature ID for a split or
+//        -(label ID + 1) for a leaf (int), left child, right child (int each, -1 for a leaf),
+//        an unused int and threshold (IEEE 754 double)
+// Every record starts at a multiple of 8 bytes from the start of the model, so every threshold
+// is 8-byte aligned.
+public class FrozenClassificationTree extends Classifier {
+    public static final int BINARY_MAGIC = 0x43545245;      // "CTRE"
+    public static final int BINARY_VERSION = 2;
+    public static final int NODE_BYTES = 24;
+
+    private final Feature[] features;
+    private final String[] labels;
+    private final int[] featureIds;
+    private final double[] thresholds;
+    private final int[] left;
+    private final int[] right;
+    private final int[] labelIds;
+
+    // Constructs a new frozen tree from its node arrays. Node 0 is the root. For a split node i,
+    //      featureIds[i] indexes 'features' and left[i]/right[i] are the child node indices; for
+    //      a leaf node, featureIds[i] is -1 and labelIds[i] indexes 'labels'.
+    // All arrays should be non-null, and the node arrays should all have the same length.
+    FrozenClassificationTree(Feature[] features, String[] labels, int[] featureIds,
+                             double[] thresholds, int[] left, int[] right, int[] labelIds) {
+        this.features = features;
+        this.labels = labels;
+        this.featureIds = featureIds;
+        this.thresholds = thresholds;
+        this.left = left;
+        this.right = right;
+        this.labelIds = labelIds;
+    }
+
+    // Returns whether or not this tree can classify the provided 'input', i.e. whether every
+    //      split on its path through the tree uses a feature the input supports
+    // 'input' should be non-null.
+    public boolean canClassify(Classifiable input) {
+        return find(input) >= 0;
+    }
+
+    // Classifies the provided 'input', returning the learned label
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified
+    public String classify(Classifiable input) {
+        return classifyFrom(input, 0);
+    }
+
+    // Classifies the provided 'input' starting from the provided node instead of the root,
+    //      returning the learned label
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified from that node
+    String classifyFrom(Classifiable input, int node) {
+        return labels[classifyId(input, node)];
+    }
+
+    // Classifies the provided 'input', returning the ID of the learned label: its index within
+    //      getLabels()
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified
+    int classifyId(Classifiable input) {
+        return classifyId(input, 0);
+    }
+
+    // Helper method - like classifyId(input), but starting from the provided node
+    private int classifyId(Classifiable input, int node) {
+        int labelId = find(input, node);
+        if (labelId < 0) {
+            throw new IllegalArgumentException("Data provided is not classifiable.");
+        }
+        return labelId;
+    }
+
+    // Helper method - walks the provided 'input' down the tree, returning the ID of the label
+    //      of the leaf it reaches, or -1 if it reaches a split on a feature it doesn't support
+    //      (or the tree is empty)
+    private int find(Classifiable input) {
+        return find(input, 0);
+    }
+
+    // Helper method - like find(input), but starting from the provided node
+    private int find(Classifiable input, int node) {
+        if (featureIds.length == 0) {
+            return -1;
+        }
+        while (featureIds[node] >= 0) {
+            Feature feature = features[featureIds[node]];
+            if (!input.supports(feature)) {
+                return -1;
+            }
+            node = input.get(feature) < thresholds[node] ? left[node] : right[node];
+        }
+        return labelIds[node];
+    }
+
+    // Saves this tree to the provided PrintStream 'ps', in the same format as
+    //      ClassificationTree.save
+    // 'ps' should be non-null.
+    public void save(PrintStream ps) {
+        if (featureIds.length == 0) {
+            return;
+        }
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            if (featureIds[node] < 0) {
+                ps.println(labels[labelIds[node]]);
+            } else {
+                ps.println("Feature: " + features[featureIds[node]].getName());
+                ps.println("Threshold: " + thresholds[node]);
+                stack.push(right[node]);
+                stack.push(left[node]);
+            }
+        }
+    }
+
+    // Saves this tree to the provided OutputStream 'out' in the binary format described above
+    // 'out' should be non-null.
+    // Throws an IOException
+    //      If writing to 'out' fails
+    public void saveBinary(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(BINARY_MAGIC);
+        data.writeInt(BINARY_VERSION);
+        data.writeInt(features.length);
+        data.writeInt(labels.length);
+        for (Feature feature : features) {
+            writeString(data, feature.getName());
+        }
+        for (String label : labels) {
+            writeString(data, label);
+        }
+        while (data.size() % 8 != 0) {
+            data.writeByte(0);
+        }
+        data.writeInt(featureIds.length);
+        data.writeInt(0);
+        for (int i = 0; i < featureIds.length; i++) {
+            data.writeInt(featureIds[i] >= 0 ? featureIds[i] : -(labelIds[i] + 1));
+            data.writeInt(left[i]);
+            data.writeInt(right[i]);
+            data.writeInt(0);
+            data.writeDouble(thresholds[i]);
+        }
+        data.flush();
+    }
+
+    // Loads a tree saved with saveBinary from the provided file. The file is memory-mapped and
+    //      the node records are copied straight into the tree's arrays, without any parsing.
+    // 'fileName' should be non-null.
+    // Throws a FileNotFoundException
+    //      If the provided file doesn't exist
+    // Throws an IllegalArgumentException
+    //      If the file isn't a binary model of a supported version, or is corrupt
+    // Throws an IOException
+    //      If reading the file fails
+    public static FrozenClassificationTree loadBinary(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            FileChannel channel = file.getChannel();
+            return loadBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Loads a tree in the binary format described above from the provided buffer, starting at
+    //      its current position
+    // 'buffer' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the buffer doesn't hold a binary model of a supported version, or it is corrupt
+    public static FrozenClassificationTree loadBinary(ByteBuffer buffer) {
+        try {
+            ByteBuffer in = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+            if (in.remaining() < 8 || in.getInt() != BINARY_MAGIC) {
+                throw new IllegalArgumentException("Not a binary model.");
+            }
+            int version = in.getInt();
+            if (version != BINARY_VERSION) {
+                throw new IllegalArgumentException("Unsupported binary model version: " +
+                                                   version);
+            }
+            Feature[] features = new Feature[in.getInt()];
+            String[] labels = new String[in.getInt()];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = Feature.of(readString(in));
+            }
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = readString(in);
+            }
+            in.position((in.position() + 7) / 8 * 8);
+
+            int count = in.getInt();
+            in.getInt();
+            if (count < 0 || (long) count * NODE_BYTES > in.remaining()) {
+                throw new IllegalArgumentException("Corrupt binary model: bad node count.");
+            }
+            int[] featureIds = new int[count];
+            int[] labelIds = new int[count];
+            int[] left = new int[count];
+            int[] right = new int[count];
+            double[] thresholds = new double[count];
+            boolean[] isChild = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                int id = in.getInt();
+                featureIds[i] = Math.max(id, -1);
+                labelIds[i] = id < 0 ? -(id + 1) : -1;
+                left[i] = in.getInt();
+                right[i] = in.getInt();
+                in.getInt();
+                thresholds[i] = in.getDouble();
+                // Children must come after their parent, so classification always terminates,
+                //      and belong to only one parent, so the nodes form a tree
+                boolean valid = featureIds[i] < 0
+                        ? labelIds[i] >= 0 && labelIds[i] < labels.length
+                        : featureIds[i] < features.length && left[i] > i && left[i] < count
+                          && right[i] > i && right[i] < count && left[i] != right[i]
+                          && !isChild[left[i]] && !isChild[right[i]];
+                if (!valid) {
+                    throw new IllegalArgumentException("Corrupt binary model: bad node " + i);
+                }
+                if (featureIds[i] >= 0) {
+                    isChild[left[i]] = true;
+                    isChild[right[i]] = true;
+                }
+            }
+            return new FrozenClassificationTree(features, labels, featureIds, thresholds, left,
+                                                right, labelIds);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt binary model: truncated.");
+        }
+    }
+
+    // Returns whether or not the provided file starts with the magic bytes of the binary
+    //      format (rather than being a text model)
+    // 'fileName' should be non-null.
+    // Throws an IOException
+    //      If the provided file can't be read
+    public static boolean isBinary(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(fileName))) {
+            return in.readInt() == BINARY_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    // Writes the provided string as its UTF-8 byte count followed by its UTF-8 bytes
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Reads a string written by writeString from the provided buffer
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Corrupt binary model: bad string length.");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Returns a compiled form of this tree, which classifies through a chain of MethodHandles
+    //      instead of walking the node arrays (see CompiledClassificationTree)
+    public CompiledClassificationTree compile() {
+        return new CompiledClassificationTree(this);
+    }
+
+    // Returns a profiling form of this tree, which counts the nodes its classifications visit
+    //      (see ProfiledClassificationTree)
+    public ProfiledClassificationTree profile() {
+        return new ProfiledClassificationTree(this);
+    }
+
+    // Returns a copy of this tree with its nodes laid out in the provided order: node i of the
+    //      copy is node order[i] of this tree
+    // 'order' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If 'order' isn't an ordering of all of the nodes that starts with the root and puts
+    //      every node before its children
+    FrozenClassificationTree reorder(int[] order) {
+        int count = featureIds.length;
+        if (order.length != count) {
+            throw new IllegalArgumentException("Not an ordering of the nodes.");
+        }
+        int[] position = new int[count];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] < 0 || order[i] >= count || position[order[i]] >= 0 ||
+                    (i == 0 && order[i] != 0)) {
+                throw new IllegalArgumentException("Not an ordering of the nodes.");
+            }
+            position[order[i]] = i;
+        }
+        int[] newFeatureIds = new int[count];
+        double[] newThresholds = new double[count];
+        int[] newLeft = new int[count];
+        int[] newRight = new int[count];
+        int[] newLabelIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            newFeatureIds[i] = featureIds[node];
+            newThresholds[i] = thresholds[node];
+            newLabelIds[i] = labelIds[node];
+            newLeft[i] = featureIds[node] < 0 ? -1 : position[left[node]];
+            newRight[i] = featureIds[node] < 0 ? -1 : position[right[node]];
+            if (featureIds[node] >= 0 && (newLeft[i] <= i || newRight[i] <= i)) {
+                throw new IllegalArgumentException("Node " + node + " comes after a child.");
+            }
+        }
+        return new FrozenClassificationTree(features, labels, newFeatureIds, newThresholds,
+                                            newLeft, newRight, newLabelIds);
+    }
+
+    // Returns the feature the provided node splits on, or null if it is a leaf
+    Feature getFeature(int node) {
+        return featureIds[node] < 0 ? null : features[featureIds[node]];
+    }
+
+    // Returns the threshold of the provided split node
+    double getThreshold(int node) {
+        return thresholds[node];
+    }
+
+    // Returns the index of the left child of the provided split node
+    int getLeft(int node) {
+        return left[node];
+    }
+
+    // Returns the index of the right child of the provided split node
+    int getRight(int node) {
+        return right[node];
+    }
+
+    // Returns the label of the provided node, or null if it is a split
+    String getLabel(int node) {
+        return featureIds[node] < 0 ? labels[labelIds[node]] : null;
+    }
+
+    // Returns the labels of this tree's leaves, indexed by label ID
+    String[] getLabels() {
+        return labels.clone();
+    }
+
+    // Returns the depth of this tree: the number of splits on its longest path from the root
+    //      to a leaf (0 for a single leaf or an empty tree)
+    public int getDepth() {
+        int[] depths = new int[featureIds.length];
+        int depth = 0;
+        for (int i = 0; i < featureIds.length; i++) {
+            depth = Math.max(depth, depths[i]);
+            if (featureIds[i] >= 0) {
+                depths[left[i]] = depths[i] + 1;
+                depths[right[i]] = depths[i] + 1;
+            }
+        }
+        return depth;
+    }
+
+    // Returns the number of nodes (splits and leaves) in this tree
+    public int getNodeCount() {
+        return featureIds.length;
+    }
+}
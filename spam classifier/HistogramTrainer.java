@@ -0,0 +1,441 @@
+import java.util.*;
+import java.util.stream.*;
+
+// Trains a ClassificationTree with the CART algorithm like CartTrainer (with the same settings,
+// see TreeTrainer), but searches for splits over binned feature values instead of exact ones,
+// which is much cheaper for large numeric datasets.
+//
+// Before training, the values of every feature are quantized into at most getMaxBins() bins
+// whose edges are quantiles of the values, and each datapoint is stored as one byte per feature:
+// the number of its bin. A feature with few enough distinct values gets a bin for each, so it
+// is split exactly as CartTrainer would. Every node keeps a histogram counting the labels of its
+// datapoints in each bin of each feature, and the best threshold for a feature is found with a
+// sweep over its bins rather than over its datapoints. When a node is split, only the histogram
+// of the smaller child is counted; the larger child's is the parent's minus the smaller's.
+//
+// The trees of a RandomForest share one binned dataset. When a node only considers some of the
+// features, its histogram still counts all of them, so that its children's can be subtracted.
+public class HistogramTrainer extends TreeTrainer {
+    public static final int MAX_BINS = 256;
+
+    private int maxBins;
+
+    // Constructs a new trainer with the defaults of TreeTrainer and MAX_BINS bins per feature
+    public HistogramTrainer() {
+        this.maxBins = MAX_BINS;
+    }
+
+    // Sets the largest number of bins the values of a feature are quantized into
+    // Throws an IllegalArgumentException
+    //      If 'maxBins' is less than 2 or more than MAX_BINS
+    public void setMaxBins(int maxBins) {
+        if (maxBins < 2 || maxBins > MAX_BINS) {
+            throw new IllegalArgumentException("Max bins must be between 2 and " + MAX_BINS +
+                                               ": " + maxBins);
+        }
+        this.maxBins = maxBins;
+    }
+
+    // Returns the largest number of bins the values of a feature are quantized into
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    // Trains and returns a new tree on the provided data and labels, like train, but returns it
+    //      in frozen form
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    public FrozenClassificationTree trainFrozen(List<Classifiable> data, List<String> labels) {
+        BinnedDataset dataset = binnedDataset(data, labels);
+        int[] rows = new int[data.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return new Builder(dataset, rows, dataset.features.length, null).build();
+    }
+
+    // Returns a Sampler training trees on samples of the binned dataset for the provided data
+    //      and labels
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    Sampler sampler(List<Classifiable> data, List<String> labels) {
+        BinnedDataset dataset = binnedDataset(data, labels);
+        return new Sampler() {
+            public int featureCount() {
+                return dataset.features.length;
+            }
+
+            public FrozenClassificationTree train(int[] rows, int featuresPerSplit, Random rand) {
+                return new Builder(dataset, rows, featuresPerSplit, rand).build();
+            }
+        };
+    }
+
+    // Returns the binned dataset this trainer would train on for the provided data and labels
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    BinnedDataset binnedDataset(List<Classifiable> data, List<String> labels) {
+        return new BinnedDataset(data, labels, getMaxFeatures(), maxBins);
+    }
+
+    // The training data with the labels numbered and the values of every feature replaced by
+    // their bin numbers, one byte each. edges[f] holds the thresholds between the bins of
+    // feature f: a value falls in bin b when it's at least edges[f][b - 1] and below edges[f][b].
+    // The histograms of all features are laid out one after another, starting at offsets[f] bins.
+    static class BinnedDataset {
+        final Feature[] features;
+        final String[] labelNames;
+        final int[] labelIds;
+        final byte[][] bins;
+        final double[][] edges;
+        final int[] offsets;
+        final int binCount;
+
+        // Builds the binned dataset for the provided data and labels, keeping at most
+        //      'maxFeatures' features and quantizing each into at most 'maxBins' bins
+        // Throws an IllegalArgumentException
+        //      If the lists are empty or of different sizes, or the datapoints aren't all of
+        //      the same type
+        BinnedDataset(List<Classifiable> data, List<String> labels, int maxFeatures,
+                      int maxBins) {
+            CartTrainer.Dataset.checkSizes(data, labels);
+            this.labelNames = CartTrainer.Dataset.labelNames(labels);
+            this.labelIds = CartTrainer.Dataset.labelIds(labels, labelNames);
+            this.features = CartTrainer.Dataset.chooseFeatures(data, maxFeatures);
+
+            this.bins = new byte[features.length][];
+            this.edges = new double[features.length][];
+            IntStream.range(0, features.length).parallel().forEach(f -> {
+                double[] column = new double[data.size()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = data.get(i).get(features[f]);
+                }
+                edges[f] = binEdges(column, maxBins);
+                bins[f] = new byte[column.length];
+                for (int i = 0; i < column.length; i++) {
+                    bins[f][i] = (byte) bin(edges[f], column[i]);
+                }
+            });
+
+            this.offsets = new int[features.length];
+            int next = 0;
+            for (int f = 0; f < features.length; f++) {
+                offsets[f] = next;
+                next += edges[f].length + 1;
+            }
+            this.binCount = next;
+        }
+
+        // Returns the thresholds between at most 'maxBins' bins for the provided values. With
+        //      no more distinct values than bins, every distinct value gets its own bin;
+        //      otherwise the edges are placed at evenly spaced quantiles of the values. Every
+        //      edge lies halfway between two neighbouring distinct values.
+        private static double[] binEdges(double[] column, int maxBins) {
+            double[] sorted = column.clone();
+            Arrays.sort(sorted);
+            double[] distinct = new double[sorted.length];
+            int distinctCount = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    distinct[distinctCount++] = sorted[i];
+                }
+            }
+            if (distinctCount <= maxBins) {
+                double[] edges = new double[distinctCount - 1];
+                for (int i = 1; i < distinctCount; i++) {
+                    edges[i - 1] = threshold(distinct[i - 1], distinct[i]);
+                }
+                return edges;
+            }
+
+            // Walk the quantiles and the distinct values in step, placing each edge just below
+            //      the distinct value a quantile falls on
+            double[] edges = new double[maxBins - 1];
+            int edgeCount = 0;
+            int value = 0;
+            for (int k = 1; k < maxBins; k++) {
+                double quantile = sorted[(int) ((long) k * sorted.length / maxBins)];
+                int previous = value;
+                while (distinct[value] < quantile) {
+                    value++;
+                }
+                if (value > 0 && (edgeCount == 0 || value > previous)) {
+                    edges[edgeCount++] = threshold(distinct[value - 1], distinct[value]);
+                }
+            }
+            return Arrays.copyOf(edges, edgeCount);
+        }
+
+        // Returns a threshold halfway between the provided neighbouring values that 'lower'
+        //      falls below (rounding can put the midpoint on 'lower', which must go left)
+        private static double threshold(double lower, double upper) {
+            double midpoint = Split.midpoint(lower, upper);
+            return lower < midpoint ? midpoint : upper;
+        }
+
+        // Returns the bin the provided value falls in: the number of edges it isn't below. This
+        //      uses the same comparison as classification, so every value is binned on the
+        //      side of each edge that a tree splitting on that edge would send it.
+        static int bin(double[] edges, double value) {
+            int low = 0;
+            int high = edges.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (value < edges[mid]) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    // The best split found for a node on one feature: the rows in bins up to and including
+    // 'bin' go left
+    private static class Candidate {
+        final int feature;
+        final int bin;
+        final double score;
+        final int[] leftCounts;
+
+        Candidate(int feature, int bin, double score, int[] leftCounts) {
+            this.feature = feature;
+            this.bin = bin;
+            this.score = score;
+            this.leftCounts = leftCounts;
+        }
+    }
+
+    // A node waiting to be grown: its rows are the range [start, end) of the builder's rows.
+    // 'histogram' is null if the node won't be split.
+    private static class Pending {
+        final int node;
+        final int start;
+        final int end;
+        final int depth;
+        final int[] counts;
+        final int[] histogram;
+
+        Pending(int node, int start, int end, int depth, int[] counts, int[] histogram) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+            this.counts = counts;
+            this.histogram = histogram;
+        }
+    }
+
+    // Grows one tree. The rows of every node are a range of 'rows' (where a row may appear more
+    // than once), and splitting a node partitions its range in place. A histogram holds the count
+    // of rows with label l in bin b of feature f at (offsets[f] + b) * labelCount + l. Nodes are
+    // numbered as they are created, so children always come after their parents, as
+    // FrozenClassificationTree needs.
+    private class Builder {
+        private final BinnedDataset dataset;
+        private final int featuresPerSplit;
+        private final Random rand;
+        private final int labelCount;
+        private final int[] rows;
+        private final int[] spare;
+        private final int[] allFeatures;
+
+        private int nodeCount;
+        private final int[] featureOf;
+        private final double[] thresholds;
+        private final int[] left;
+        private final int[] right;
+        private final int[] labelOf;
+
+        Builder(BinnedDataset dataset, int[] rows, int featuresPerSplit, Random rand) {
+            this.dataset = dataset;
+            this.featuresPerSplit = featuresPerSplit;
+            this.rand = rand;
+            this.labelCount = dataset.labelNames.length;
+            this.rows = rows;
+            this.spare = new int[rows.length];
+            this.allFeatures = IntStream.range(0, dataset.features.length).toArray();
+
+            int capacity = 2 * rows.length;
+            this.featureOf = new int[capacity];
+            this.thresholds = new double[capacity];
+            this.left = new int[capacity];
+            this.right = new int[capacity];
+            this.labelOf = new int[capacity];
+        }
+
+        // Grows the tree, returning it in frozen form
+        FrozenClassificationTree build() {
+            int[] counts = new int[labelCount];
+            for (int row : rows) {
+                counts[dataset.labelIds[row]]++;
+            }
+            Deque<Pending> pending = new ArrayDeque<>();
+            pending.push(new Pending(nodeCount++, 0, rows.length, 0, counts,
+                    splittable(rows.length, 0, counts) ? histogram(0, rows.length) : null));
+            while (!pending.isEmpty()) {
+                Pending task = pending.pop();
+                int node = task.node;
+                int size = task.end - task.start;
+                labelOf[node] = majority(task.counts);
+                featureOf[node] = -1;
+                left[node] = -1;
+                right[node] = -1;
+                if (task.histogram == null) {
+                    continue;
+                }
+
+                Candidate best = findBestSplit(task.histogram, task.counts, size);
+                if (best == null ||
+                        best.score >= weightedImpurity(task.counts, size) - 1e-9) {
+                    continue;
+                }
+                int mid = partition(best, task.start, task.end);
+                featureOf[node] = best.feature;
+                thresholds[node] = dataset.edges[best.feature][best.bin];
+                labelOf[node] = -1;
+                left[node] = nodeCount++;
+                right[node] = nodeCount++;
+
+                int[] leftCounts = best.leftCounts;
+                int[] rightCounts = task.counts.clone();
+                for (int l = 0; l < labelCount; l++) {
+                    rightCounts[l] -= leftCounts[l];
+                }
+                boolean splitLeft = splittable(mid - task.start, task.depth + 1, leftCounts);
+                boolean splitRight = splittable(task.end - mid, task.depth + 1, rightCounts);
+                int[] leftHistogram = null;
+                int[] rightHistogram = null;
+                if (splitLeft || splitRight) {
+                    // Count the smaller child, and take it away from the parent for the larger
+                    boolean leftSmaller = mid - task.start <= task.end - mid;
+                    int[] smaller = leftSmaller ? histogram(task.start, mid)
+                                                : histogram(mid, task.end);
+                    int[] larger = null;
+                    if (leftSmaller ? splitRight : splitLeft) {
+                        larger = task.histogram;
+                        for (int i = 0; i < larger.length; i++) {
+                            larger[i] -= smaller[i];
+                        }
+                    }
+                    leftHistogram = leftSmaller ? smaller : larger;
+                    rightHistogram = leftSmaller ? larger : smaller;
+                }
+                pending.push(new Pending(right[node], mid, task.end, task.depth + 1,
+                                         rightCounts, splitRight ? rightHistogram : null));
+                pending.push(new Pending(left[node], task.start, mid, task.depth + 1,
+                                         leftCounts, splitLeft ? leftHistogram : null));
+            }
+
+            return new FrozenClassificationTree(dataset.features, dataset.labelNames,
+                    Arrays.copyOf(featureOf, nodeCount), Arrays.copyOf(thresholds, nodeCount),
+                    Arrays.copyOf(left, nodeCount), Arrays.copyOf(right, nodeCount),
+                    Arrays.copyOf(labelOf, nodeCount));
+        }
+
+        // Returns whether a node with the provided size, depth and label counts may be split
+        private boolean splittable(int size, int depth, int[] counts) {
+            return depth < getMaxDepth() && size >= 2 * getMinLeafSize() &&
+                   counts[majority(counts)] < size;
+        }
+
+        // Returns the histogram of the rows in [start, end), counting each feature's bins in
+        //      parallel for large nodes
+        private int[] histogram(int start, int end) {
+            int[] histogram = new int[dataset.binCount * labelCount];
+            IntStream features = IntStream.range(0, dataset.features.length);
+            if ((long) (end - start) * dataset.features.length >= PARALLEL_THRESHOLD) {
+                features = features.parallel();
+            }
+            features.forEach(f -> {
+                byte[] column = dataset.bins[f];
+                int offset = dataset.offsets[f];
+                for (int i = start; i < end; i++) {
+                    int row = rows[i];
+                    histogram[(offset + (column[row] & 0xFF)) * labelCount +
+                              dataset.labelIds[row]]++;
+                }
+            });
+            return histogram;
+        }
+
+        // Returns the best split of a node with the provided histogram, label counts and size
+        //      over the features chosen for it, or null if there is none. Ties go to the
+        //      feature with the lowest index.
+        private Candidate findBestSplit(int[] histogram, int[] counts, int size) {
+            int[] features = chooseAtRandom(allFeatures, featuresPerSplit, rand);
+            IntStream search = IntStream.range(0, features.length);
+            if ((long) dataset.binCount * labelCount >= PARALLEL_THRESHOLD) {
+                search = search.parallel();
+            }
+            Candidate[] candidates = search.mapToObj(i -> bestSplit(features[i], histogram,
+                                                                    counts, size))
+                                           .toArray(Candidate[]::new);
+            Candidate best = null;
+            for (Candidate candidate : candidates) {
+                if (candidate != null && (best == null || candidate.score < best.score)) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+
+        // Returns the best split of a node on the provided feature, or null if there is none,
+        //      by sweeping its bins in order and moving one bin at a time from the right child
+        //      to the left child
+        private Candidate bestSplit(int feature, int[] histogram, int[] counts, int size) {
+            int[] leftCounts = new int[labelCount];
+            int[] rightCounts = counts.clone();
+            int leftSize = 0;
+            Candidate best = null;
+            int offset = dataset.offsets[feature];
+            for (int bin = 0; bin < dataset.edges[feature].length; bin++) {
+                int base = (offset + bin) * labelCount;
+                int binSize = 0;
+                for (int l = 0; l < labelCount; l++) {
+                    int count = histogram[base + l];
+                    leftCounts[l] += count;
+                    rightCounts[l] -= count;
+                    binSize += count;
+                }
+                if (binSize == 0) {
+                    continue;       // The same split as the bin before
+                }
+                leftSize += binSize;
+                if (leftSize < getMinLeafSize()) {
+                    continue;
+                } else if (size - leftSize < getMinLeafSize()) {
+                    break;
+                }
+                double score = weightedImpurity(leftCounts, leftSize) +
+                               weightedImpurity(rightCounts, size - leftSize);
+                if (best == null || score < best.score) {
+                    best = new Candidate(feature, bin, score, leftCounts.clone());
+                }
+            }
+            return best;
+        }
+
+        // Stably partitions the rows in [start, end) by the provided split, rows going left
+        //      first. Returns where the rows going right start.
+        private int partition(Candidate split, int start, int end) {
+            byte[] column = dataset.bins[split.feature];
+            int next = start;
+            int spareCount = 0;
+            for (int i = start; i < end; i++) {
+                if ((column[rows[i]] & 0xFF) <= split.bin) {
+                    rows[next++] = rows[i];
+                } else {
+                    spare[spareCount++] = rows[i];
+                }
+            }
+            System.arraycopy(spare, 0, rows, next, spareCount);
+            return next;
+        }
+    }
+}
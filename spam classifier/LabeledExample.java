@@ -0,0 +1,27 @@
+// Represents a single datapoint read from a dataset, together with its expected label
+public class LabeledExample {
+    private Classifiable data;
+    private String label;
+
+    // Constructs a new example from the provided datapoint and label
+    // 'data' and 'label' should be non-null.
+    public LabeledExample(Classifiable data, String label) {
+        this.data = data;
+        this.label = label;
+    }
+
+    // Returns the datapoint of this example
+    public Classifiable getData() {
+        return data;
+    }
+
+    // Returns the expected label of this example
+    public String getLabel() {
+        return label;
+    }
+
+    // Returns a String representation of this example, the label followed by the datapoint
+    public String toString() {
+        return label + ": " + data;
+    }
+}
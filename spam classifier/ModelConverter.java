@@ -0,0 +1,54 @@
+import java.io.*;
+
+// Converts classification tree models between the text format of ClassificationTree.save and
+// the binary format of FrozenClassificationTree.saveBinary. The format of the input model is
+// detected from its first bytes, and the output model is written in the other format.
+// Run from the spam classifier directory:
+//      java ModelConverter <input model> <output model>
+public class ModelConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java ModelConverter <input model> <output model>");
+            return;
+        }
+        String input = args[0];
+        String output = args[1];
+        if (FrozenClassificationTree.isBinary(input)) {
+            toText(input, output);
+            System.out.println("Converted binary model " + input + " to text model " + output);
+        } else {
+            toBinary(input, output);
+            System.out.println("Converted text model " + input + " to binary model " + output);
+        }
+        System.out.printf("%d bytes -> %d bytes%n", new File(input).length(),
+                          new File(output).length());
+    }
+
+    // Converts the text model in the 'input' file to a binary model in the 'output' file
+    // 'input' and 'output' should be non-null.
+    // Throws an IOException
+    //      If the input file can't be read or the output file can't be written
+    public static void toBinary(String input, String output) throws IOException {
+        ClassificationTree tree;
+        try (BufferedReader reader = new BufferedReader(new FileReader(input))) {
+            tree = new ClassificationTree(reader);
+        }
+        try (OutputStream out = new FileOutputStream(output)) {
+            tree.freeze().saveBinary(out);
+        }
+    }
+
+    // Converts the binary model in the 'input' file to a text model in the 'output' file
+    // 'input' and 'output' should be non-null.
+    // Throws an IOException
+    //      If the input file can't be read or the output file can't be written
+    // Throws an IllegalArgumentException
+    //      If the input file isn't a valid binary model
+    public static void toText(String input, String output) throws IOException {
+        FrozenClassificationTree tree = FrozenClassificationTree.loadBinary(input);
+        try (PrintStream ps = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(output)))) {
+            tree.save(ps);
+        }
+    }
+}
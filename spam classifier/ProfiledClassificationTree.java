@@ -0,0 +1,313 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// This class represents a FrozenClassificationTree in profiling mode: it classifies exactly like
+// the frozen tree, but also counts how many times every node is visited, how many splits each
+// classification passes through, and how long the classifications returning each label take.
+// Every thread counts into arrays of its own, so classifying in parallel (e.g. with
+// classifyAll) doesn't contend on shared counters; the arrays of all threads are added up when
+// the counts are read. Counts read while classifications are running may be slightly behind.
+//
+// The counts can be printed as a report of the hot paths through the tree or as a dump of the
+// tree annotated with them, and used to lay the tree's nodes out again so that the hottest
+// paths are stored contiguously (see reorder).
+public class ProfiledClassificationTree extends Classifier {
+    private final FrozenClassificationTree tree;
+    private final String[] labels;
+    private final int[] labelOf;
+    private final int depthCount;
+    private final Queue<Counters> allCounters;
+    private final ThreadLocal<Counters> counters;
+
+    // The counts of one thread: visits per node, classifications per depth, and classifications
+    // and their total time in nanoseconds per label, with the path of the classification
+    // running on the thread (only counted once it succeeds)
+    private static class Counters {
+        final long[] visits;
+        final long[] depths;
+        final long[] labelCounts;
+        final long[] labelNanos;
+        final int[] path;
+
+        Counters(int nodeCount, int depthCount, int labelCount) {
+            this.path = new int[depthCount];
+            this.visits = new long[nodeCount];
+            this.depths = new long[depthCount];
+            this.labelCounts = new long[labelCount];
+            this.labelNanos = new long[labelCount];
+        }
+    }
+
+    // Constructs a new profiling tree for the provided frozen tree, with all counts at zero
+    // 'tree' should be non-null.
+    ProfiledClassificationTree(FrozenClassificationTree tree) {
+        this.tree = tree;
+        Map<String, Integer> labelIds = new LinkedHashMap<>();
+        this.labelOf = new int[tree.getNodeCount()];
+        for (int i = 0; i < labelOf.length; i++) {
+            String label = tree.getLabel(i);
+            labelOf[i] = label == null ? -1
+                                       : labelIds.computeIfAbsent(label, l -> labelIds.size());
+        }
+        this.labels = labelIds.keySet().toArray(new String[0]);
+        this.depthCount = tree.getDepth() + 1;
+        this.allCounters = new ConcurrentLinkedQueue<>();
+        this.counters = ThreadLocal.withInitial(() -> {
+            Counters counts = new Counters(labelOf.length, depthCount, labels.length);
+            allCounters.add(counts);
+            return counts;
+        });
+    }
+
+    // Returns whether or not this tree can classify the provided 'input', i.e. whether every
+    //      split on its path through the tree uses a feature the input supports. Nothing is
+    //      counted.
+    // 'input' should be non-null.
+    public boolean canClassify(Classifiable input) {
+        return tree.canClassify(input);
+    }
+
+    // Classifies the provided 'input', returning the learned label, and counts the nodes it
+    //      visits, its depth and its time (nothing is counted if it can't be classified)
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified
+    public String classify(Classifiable input) {
+        long start = System.nanoTime();
+        if (labelOf.length == 0) {
+            throw new IllegalArgumentException("Data provided is not classifiable.");
+        }
+        Counters counts = counters.get();
+        int[] path = counts.path;
+        int node = 0;
+        int depth = 0;
+        Feature feature = tree.getFeature(node);
+        while (feature != null) {
+            if (!input.supports(feature)) {
+                throw new IllegalArgumentException("Data provided is not classifiable.");
+            }
+            path[depth] = node;
+            node = input.get(feature) < tree.getThreshold(node) ? tree.getLeft(node)
+                                                                : tree.getRight(node);
+            depth++;
+            feature = tree.getFeature(node);
+        }
+        for (int i = 0; i < depth; i++) {
+            counts.visits[path[i]]++;
+        }
+        counts.visits[node]++;
+        counts.depths[depth]++;
+        int label = labelOf[node];
+        counts.labelCounts[label]++;
+        counts.labelNanos[label] += System.nanoTime() - start;
+        return labels[label];
+    }
+
+    // Saves the profiled tree to the provided PrintStream 'ps', in the same format as
+    //      ClassificationTree.save (without any counts)
+    // 'ps' should be non-null.
+    public void save(PrintStream ps) {
+        tree.save(ps);
+    }
+
+    // Returns the frozen tree being profiled
+    public FrozenClassificationTree getFrozenTree() {
+        return tree;
+    }
+
+    // Returns how many times each node has been visited, indexed like the frozen tree's nodes
+    public long[] getVisitCounts() {
+        long[] visits = new long[labelOf.length];
+        for (Counters counts : allCounters) {
+            add(visits, counts.visits);
+        }
+        return visits;
+    }
+
+    // Returns how many classifications passed through each number of splits (index 0 for
+    //      classifications that ended at the root), up to the depth of the tree
+    public long[] getDepthHistogram() {
+        long[] depths = new long[depthCount];
+        for (Counters counts : allCounters) {
+            add(depths, counts.depths);
+        }
+        return depths;
+    }
+
+    // Returns the number of completed classifications
+    public long getClassificationCount() {
+        long total = 0;
+        for (long count : getDepthHistogram()) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Returns the average time in nanoseconds of the classifications returning each label, for
+    //      every label that has been returned
+    public Map<String, Double> getLabelLatencies() {
+        long[] labelCounts = new long[labels.length];
+        long[] labelNanos = new long[labels.length];
+        for (Counters counts : allCounters) {
+            add(labelCounts, counts.labelCounts);
+            add(labelNanos, counts.labelNanos);
+        }
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            if (labelCounts[i] > 0) {
+                latencies.put(labels[i], (double) labelNanos[i] / labelCounts[i]);
+            }
+        }
+        return latencies;
+    }
+
+    // Sets all counts back to zero. Classifications running at the same time may or may not
+    //      be counted.
+    public void reset() {
+        for (Counters counts : allCounters) {
+            Arrays.fill(counts.visits, 0);
+            Arrays.fill(counts.depths, 0);
+            Arrays.fill(counts.labelCounts, 0);
+            Arrays.fill(counts.labelNanos, 0);
+        }
+    }
+
+    // Prints a report of the counts to the provided PrintStream 'ps': the number of
+    //      classifications and their depths, the hot path (from the root, always following
+    //      the child visited most), the 'leafCount' most visited leaves, and the latency of
+    //      each label
+    // 'ps' should be non-null.
+    public void report(PrintStream ps, int leafCount) {
+        long[] visits = getVisitCounts();
+        long[] depths = getDepthHistogram();
+        long total = getClassificationCount();
+        double depthSum = 0;
+        for (int depth = 0; depth < depths.length; depth++) {
+            depthSum += (double) depth * depths[depth];
+        }
+        ps.printf("Classifications: %d%n", total);
+        ps.printf("Average depth: %.2f%n", total == 0 ? 0.0 : depthSum / total);
+        ps.println("Depth histogram:");
+        for (int depth = 0; depth < depths.length; depth++) {
+            if (depths[depth] > 0) {
+                ps.printf("  %5d %12d %s%n", depth, depths[depth], percent(depths[depth], total));
+            }
+        }
+
+        ps.println("Hot path:");
+        int node = 0;
+        while (labelOf.length > 0) {
+            ps.printf("  %12d %s  %s%n", visits[node], percent(visits[node], total),
+                      describe(node));
+            if (labelOf[node] >= 0) {
+                break;
+            }
+            int left = tree.getLeft(node);
+            int right = tree.getRight(node);
+            node = visits[left] >= visits[right] ? left : right;
+        }
+
+        ps.println("Hottest leaves:");
+        int[] depthOf = depths();
+        List<Integer> leaves = new ArrayList<>();
+        for (int i = 0; i < labelOf.length; i++) {
+            if (labelOf[i] >= 0 && visits[i] > 0) {
+                leaves.add(i);
+            }
+        }
+        leaves.sort(Comparator.comparingLong((Integer leaf) -> -visits[leaf])
+                              .thenComparing(Comparator.naturalOrder()));
+        for (int leaf : leaves.subList(0, Math.min(leafCount, leaves.size()))) {
+            ps.printf("  %12d %s  node %d at depth %d: %s%n", visits[leaf],
+                      percent(visits[leaf], total), leaf, depthOf[leaf], labels[labelOf[leaf]]);
+        }
+
+        ps.println("Latency by label:");
+        Map<String, Double> latencies = getLabelLatencies();
+        for (String label : latencies.keySet()) {
+            ps.printf("  %-20s %10.1f ns%n", label, latencies.get(label));
+        }
+    }
+
+    // Prints the tree to the provided PrintStream 'ps' in the order of ClassificationTree.save,
+    //      one node per line, indented by depth and annotated with its visit count
+    // 'ps' should be non-null.
+    public void dump(PrintStream ps) {
+        if (labelOf.length == 0) {
+            return;
+        }
+        long[] visits = getVisitCounts();
+        long total = getClassificationCount();
+        int[] depthOf = depths();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            ps.printf("%s%s  [%d visits, %s]%n", "  ".repeat(depthOf[node]), describe(node),
+                      visits[node], percent(visits[node], total).trim());
+            if (labelOf[node] < 0) {
+                stack.push(tree.getRight(node));
+                stack.push(tree.getLeft(node));
+            }
+        }
+    }
+
+    // Returns a copy of the frozen tree with its nodes laid out by the counts so far: in
+    //      depth-first order, always placing the child visited more right after its parent,
+    //      so the hottest paths through the tree are stored contiguously. It classifies
+    //      exactly like the frozen tree.
+    public FrozenClassificationTree reorder() {
+        long[] visits = getVisitCounts();
+        int[] order = new int[labelOf.length];
+        int next = 0;
+        Deque<Integer> stack = new ArrayDeque<>();
+        if (labelOf.length > 0) {
+            stack.push(0);
+        }
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            order[next++] = node;
+            if (labelOf[node] < 0) {
+                int left = tree.getLeft(node);
+                int right = tree.getRight(node);
+                boolean leftHotter = visits[left] >= visits[right];
+                stack.push(leftHotter ? right : left);
+                stack.push(leftHotter ? left : right);
+            }
+        }
+        return tree.reorder(order);
+    }
+
+    // Returns the depth of every node
+    private int[] depths() {
+        int[] depthOf = new int[labelOf.length];
+        for (int i = 0; i < labelOf.length; i++) {
+            if (labelOf[i] < 0) {
+                depthOf[tree.getLeft(i)] = depthOf[i] + 1;
+                depthOf[tree.getRight(i)] = depthOf[i] + 1;
+            }
+        }
+        return depthOf;
+    }
+
+    // Returns a one line description of the provided node: its split or its label
+    private String describe(int node) {
+        if (labelOf[node] >= 0) {
+            return labels[labelOf[node]];
+        }
+        return "Feature: " + tree.getFeature(node).getName() + " < " + tree.getThreshold(node);
+    }
+
+    // Returns 'count' as a percentage of 'total', padded to a fixed width
+    private static String percent(long count, long total) {
+        return String.format("%6.2f%%", total == 0 ? 0.0 : 100.0 * count / total);
+    }
+
+    // Adds the provided counts into 'sums'
+    private static void add(long[] sums, long[] counts) {
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += counts[i];
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.*;
+import java.util.*;
+import java.util.stream.*;
+
+// This class represents a random forest: many classification trees, each trained by a TreeTrainer
+// on a bootstrap sample of the training data (datapoints drawn at random with replacement) and
+// considering only a random subset of the features at every split. A datapoint is classified by
+// a majority vote of the trees. The trees are trained in parallel on the current fork-join pool.
+// The labels of all the trees are numbered once, so votes are tallied in an int[] by label ID.
+//
+// A forest is saved as a "Forest: " line holding the number of trees, followed by each tree in
+// the format of ClassificationTree.save.
+public class RandomForest extends Classifier {
+    public static final String HEADER = "Forest: ";
+    public static final int BATCH_SIZE = 256;
+
+    private final FrozenClassificationTree[] trees;
+    // Every label of any tree in sorted order, and for each tree, the index within 'labels' of
+    // each of its own label IDs
+    private final String[] labels;
+    private final int[][] labelIds;
+
+    // Constructs a new forest of 'treeCount' trees trained on the provided data and labels with
+    //      a default CartTrainer. The label for a datapoint at index 'i' within 'data' should be
+    //      found at the same 'i' within 'labels'.
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If 'treeCount' is less than 1, or the lists are empty or of different sizes
+    public RandomForest(List<Classifiable> data, List<String> labels, int treeCount) {
+        this(data, labels, treeCount, new CartTrainer(), new Random());
+    }
+
+    // Constructs a new forest of 'treeCount' trees trained on the provided data and labels with
+    //      the provided trainer (and its limits). Each split considers the square root of the
+    //      number of features, chosen at random. 'rand' decides the bootstrap samples and
+    //      features, so the same seed always gives the same forest, however many threads train
+    //      it.
+    // 'data', 'labels', 'trainer' and 'rand' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If 'treeCount' is less than 1, or the lists are empty or of different sizes
+    public RandomForest(List<Classifiable> data, List<String> labels, int treeCount,
+                        TreeTrainer trainer, Random rand) {
+        if (treeCount < 1) {
+            throw new IllegalArgumentException("A forest needs at least 1 tree: " + treeCount);
+        }
+        TreeTrainer.Sampler sampler = trainer.sampler(data, labels);
+        int featuresPerSplit = Math.max(1, (int) Math.round(Math.sqrt(sampler.featureCount())));
+        long[] seeds = rand.longs(treeCount).toArray();
+        this.trees = IntStream.range(0, treeCount).parallel().mapToObj(i -> {
+            Random treeRand = new Random(seeds[i]);
+            int[] rows = new int[data.size()];
+            for (int j = 0; j < rows.length; j++) {
+                rows[j] = treeRand.nextInt(data.size());
+            }
+            return sampler.train(rows, featuresPerSplit, treeRand);
+        }).toArray(FrozenClassificationTree[]::new);
+        this.labels = labels(trees);
+        this.labelIds = labelIds(trees, this.labels);
+    }
+
+    // Constructs a new forest by loading one saved with save from the provided Scanner
+    // 'sc' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the Scanner doesn't start with a forest header
+    public RandomForest(Scanner sc) {
+        this.trees = new FrozenClassificationTree[treeCount(sc.hasNextLine() ? sc.nextLine()
+                                                                              : null)];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new ClassificationTree(sc).freeze();
+        }
+        this.labels = labels(trees);
+        this.labelIds = labelIds(trees, this.labels);
+    }
+
+    // Constructs a new forest by loading one saved with save from the provided reader. Reading
+    //      whole lines from a BufferedReader is much faster than going through a Scanner, so
+    //      this is the one to use for large forests.
+    // 'reader' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the reader doesn't start with a forest header
+    // Throws an IOException
+    //      If reading from the reader fails
+    public RandomForest(BufferedReader reader) throws IOException {
+        this.trees = new FrozenClassificationTree[treeCount(reader.readLine())];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new ClassificationTree(reader).freeze();
+        }
+        this.labels = labels(trees);
+        this.labelIds = labelIds(trees, this.labels);
+    }
+
+    // Returns every label of any of the provided trees, in sorted order
+    private static String[] labels(FrozenClassificationTree[] trees) {
+        Set<String> labels = new TreeSet<>();
+        for (FrozenClassificationTree tree : trees) {
+            labels.addAll(Arrays.asList(tree.getLabels()));
+        }
+        return labels.toArray(new String[0]);
+    }
+
+    // Returns, for each of the provided trees, the index within the provided sorted 'labels' of
+    //      each of the tree's label IDs
+    private static int[][] labelIds(FrozenClassificationTree[] trees, String[] labels) {
+        int[][] labelIds = new int[trees.length][];
+        for (int i = 0; i < trees.length; i++) {
+            String[] treeLabels = trees[i].getLabels();
+            labelIds[i] = new int[treeLabels.length];
+            for (int j = 0; j < treeLabels.length; j++) {
+                labelIds[i][j] = Arrays.binarySearch(labels, treeLabels[j]);
+            }
+        }
+        return labelIds;
+    }
+
+    // Returns the number of trees in the provided forest header line (null if there is none)
+    // Throws an IllegalArgumentException
+    //      If the line isn't a forest header
+    private static int treeCount(String header) {
+        if (header == null || !header.startsWith(HEADER)) {
+            throw new IllegalArgumentException("Not a saved forest: " + header);
+        }
+        return Integer.parseInt(header.substring(HEADER.length()).trim());
+    }
+
+    // Returns whether or not the provided file holds a saved forest (rather than a single tree)
+    // 'fileName' should be non-null.
+    // Throws an IOException
+    //      If the provided file can't be read
+    public static boolean isForest(String fileName) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String header = reader.readLine();
+            return header != null && header.startsWith(HEADER);
+        }
+    }
+
+    // Returns whether or not every tree in this forest can classify the provided 'input'
+    // 'input' should be non-null.
+    public boolean canClassify(Classifiable input) {
+        for (FrozenClassificationTree tree : trees) {
+            if (!tree.canClassify(input)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Classifies the provided 'input' with every tree, returning the label most trees chose
+    //      (ties to the label that comes first in sorted order). To classify many datapoints,
+    //      use classifyAll, which classifies them in batches and in parallel.
+    // 'input' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the provided input can't be classified by every tree
+    public String classify(Classifiable input) {
+        int[] votes = new int[labels.length];
+        for (int i = 0; i < trees.length; i++) {
+            votes[labelIds[i][trees[i].classifyId(input)]]++;
+        }
+        return labels[TreeTrainer.majority(votes)];
+    }
+
+    // Classifies every datapoint within the provided 'data' like classify, returning the labels
+    //      in the same order. The datapoints are classified in batches of BATCH_SIZE, each
+    //      reusing one tally of votes, and the batches are classified in parallel on the
+    //      current fork-join pool.
+    // 'data' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If any of the datapoints can't be classified by every tree
+    public List<String> classifyAll(List<Classifiable> data) {
+        String[] results = new String[data.size()];
+        IntStream.range(0, (data.size() + BATCH_SIZE - 1) / BATCH_SIZE).parallel()
+                 .forEach(batch -> classifyBatch(data, batch * BATCH_SIZE,
+                         Math.min(data.size(), (batch + 1) * BATCH_SIZE), results));
+        return Arrays.asList(results);
+    }
+
+    // Helper method - classifies data[start, end) into results[start, end)
+    private void classifyBatch(List<Classifiable> data, int start, int end, String[] results) {
+        int[] votes = new int[labels.length];
+        for (int i = start; i < end; i++) {
+            Classifiable input = data.get(i);
+            Arrays.fill(votes, 0);
+            for (int j = 0; j < trees.length; j++) {
+                votes[labelIds[j][trees[j].classifyId(input)]]++;
+            }
+            results[i] = labels[TreeTrainer.majority(votes)];
+        }
+    }
+
+    // Saves this forest to the provided PrintStream 'ps'
+    // 'ps' should be non-null.
+    public void save(PrintStream ps) {
+        ps.println(HEADER + trees.length);
+        for (FrozenClassificationTree tree : trees) {
+            tree.save(ps);
+        }
+    }
+
+    // Returns the number of trees in this forest
+    public int getTreeCount() {
+        return trees.length;
+    }
+}
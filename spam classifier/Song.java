@@ -5,7 +5,13 @@ import java.util.*;
 public class Song implements Classifiable {
 
     private static final Set<String> FEATURES = Set.of("danceability", "energy", "popularity");
+    private static final int DANCEABILITY = Feature.baseId("danceability");
+    private static final int ENERGY = Feature.baseId("energy");
+    private static final int POPULARITY = Feature.baseId("popularity");
     private Map<String, Double> featureVals;
+    private double danceability;
+    private double energy;
+    private int hash;
 
     public Song(double danceability, double energy, double key, double loudness, 
             double speechiness, double instrumentalness) {
@@ -16,6 +22,9 @@ public class Song implements Classifiable {
         this.featureVals.put("key", key);
         this.featureVals.put("speechiness", speechiness);
         this.featureVals.put("instrumentalness", instrumentalness);
+        this.danceability = danceability;
+        this.energy = energy;
+        this.hash = featureVals.hashCode();
     }
     
     
@@ -32,6 +41,29 @@ public class Song implements Classifiable {
 
     }
     
+    // Returns the numeric value corresponding to the provided resolved feature for this instance,
+    // without any String lookups.
+    // 'feature' should be non-null.
+    public double get(Feature feature) {
+        int id = feature.getBaseId();
+        if (id == DANCEABILITY) {
+            return danceability;
+        } else if (id == ENERGY) {
+            return energy;
+        } else if (id == POPULARITY) {
+            return 0.0;
+        }
+        throw new IllegalArgumentException();
+    }
+
+    // Returns whether the provided resolved feature is one of the valid features for this
+    // datatype.
+    // 'feature' should be non-null.
+    public boolean supports(Feature feature) {
+        int id = feature.getBaseId();
+        return id == DANCEABILITY || id == ENERGY || id == POPULARITY;
+    }
+
     // Returns a Set of all valid features for this datatype.
     public Set<String> getFeatures() {
         return FEATURES;
@@ -63,6 +95,19 @@ public class Song implements Classifiable {
         return new Split(bestFeature, halfway);
     }
 
+    // Returns whether the provided object is a Song with the same values as this one for every
+    //      one of its stored features
+    public boolean equals(Object other) {
+        return other instanceof Song && hash == ((Song) other).hash &&
+               featureVals.equals(((Song) other).featureVals);
+    }
+
+    // Returns a hash code of the stored feature values of this song, computed once when the
+    //      song is constructed
+    public int hashCode() {
+        return hash;
+    }
+
     public static Classifiable toClassifiable(List<String> row) {
         double danceability = Double.parseDouble(row.get(11));
         double energy = Double.parseDouble(row.get(12));
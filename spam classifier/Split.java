@@ -2,12 +2,15 @@
 public class Split {
     private double threshold;
     private String feature;
+    private Feature handle;
 
-    // Construct a new split from the provided threshold and feature
+    // Construct a new split from the provided threshold and feature. The feature is resolved
+    //      once here, so evaluating the split does no String work.
     // 'feature' should be non-null.
     public Split(String feature, double threshold) {
         this.threshold = threshold;
         this.feature = feature;
+        this.handle = Feature.of(feature);
     }
 
     // Returns the threshold for this split
@@ -18,14 +21,19 @@ public class Split {
     // Returns the feature for this split. Importantly, if this is a complex feature
     //      containing two elements separated by Classifiable.SPLITTER, return the first part
     public String getFeature() {
-        return feature.split(Classifiable.SPLITTER)[0];
+        return handle.getBase();
+    }
+
+    // Returns the resolved feature for this split
+    public Feature getHandle() {
+        return handle;
     }
 
     // Evaluates the provided Classifiable object on this split, returning true if it falls
     //      below (<) this split, false if it falls above (>=) this split
     // 'value' should be non-null.
     public boolean evaluate(Classifiable value) {
-        return value.get(this.feature) < this.threshold;
+        return value.get(this.handle) < this.threshold;
     }
 
     // Returns a String representation of this split, with the feature on the first line preceeded
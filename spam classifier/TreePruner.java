@@ -0,0 +1,324 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+// Prunes a FrozenClassificationTree: replaces some of its subtrees with leaves, giving a smaller
+// and shallower tree that is faster to classify with and smaller to save. Trees grown one
+// datapoint at a time (see ClassificationTree) have a leaf for nearly every training datapoint,
+// so they often classify unseen data just as well, or better, once pruned.
+//
+// A pruner is built from a tree and labelled datapoints (usually the training data), which are
+// walked down the tree to count the labels reaching every node. A subtree that is pruned is
+// replaced by a leaf with the label most of those datapoints have. A tree can then be pruned
+//      - against a validation split (reduced-error pruning): every subtree that doesn't classify
+//        the validation data any better than a single leaf is pruned, from the bottom up
+//      - to a number of nodes: the subtrees whose pruning costs the fewest datapoints are pruned
+//        until the tree is small enough
+//      - to a depth: every split below the depth is pruned
+// Each returns a new tree and leaves the original unchanged.
+public class TreePruner {
+    private final FrozenClassificationTree tree;
+    private final String[] labels;
+    private final Map<String, Integer> labelIds;
+    private final int[] parents;
+    private final int[] depths;
+    private final int[][] counts;
+    private final int[] leafLabels;
+
+    // Constructs a new pruner for the provided tree, counting the labels of the provided data
+    //      at every node. The label for a datapoint at index 'i' within 'data' should be found
+    //      at the same 'i' within 'labels'.
+    // 'tree', 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are of different sizes
+    public TreePruner(FrozenClassificationTree tree, List<Classifiable> data,
+                      List<String> labels) {
+        this.tree = tree;
+        int nodeCount = tree.getNodeCount();
+        // Number the labels in sorted order, so ties don't depend on the order of the data
+        Set<String> names = new TreeSet<>(labels);
+        for (int i = 0; i < nodeCount; i++) {
+            if (tree.getFeature(i) == null) {
+                names.add(tree.getLabel(i));
+            }
+        }
+        this.labels = names.toArray(new String[0]);
+        this.labelIds = new HashMap<>();
+        for (String label : this.labels) {
+            labelIds.put(label, labelIds.size());
+        }
+
+        // Children come after their parents, so parents and depths can be found going forward
+        this.parents = new int[nodeCount];
+        this.depths = new int[nodeCount];
+        if (nodeCount > 0) {
+            parents[0] = -1;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            if (tree.getFeature(i) != null) {
+                for (int child : new int[]{tree.getLeft(i), tree.getRight(i)}) {
+                    parents[child] = i;
+                    depths[child] = depths[i] + 1;
+                }
+            }
+        }
+
+        this.counts = count(data, labels);
+        // The label of a pruned subtree: its majority label, or if none of the data reaches it,
+        //      the label its left subtree would get
+        this.leafLabels = new int[nodeCount];
+        for (int i = nodeCount - 1; i >= 0; i--) {
+            if (tree.getFeature(i) == null) {
+                leafLabels[i] = labelIds.get(tree.getLabel(i));
+            } else if (total(counts[i]) == 0) {
+                leafLabels[i] = leafLabels[tree.getLeft(i)];
+            } else {
+                leafLabels[i] = CartTrainer.majority(Arrays.copyOf(counts[i], this.labels.length));
+            }
+        }
+    }
+
+    // Returns the tree pruned with reduced-error pruning against the provided validation data:
+    //      going from the bottom up, every subtree that doesn't misclassify fewer of the
+    //      validation datapoints reaching it than a leaf would is pruned. The label for a
+    //      datapoint at index 'i' within 'data' should be found at the same 'i' within
+    //      'labels'.
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are of different sizes
+    public FrozenClassificationTree pruneReducedError(List<Classifiable> data,
+                                                      List<String> labels) {
+        int[][] validation = count(data, labels);
+        int nodeCount = tree.getNodeCount();
+        boolean[] pruned = new boolean[nodeCount];
+        int[] errors = new int[nodeCount];
+        for (int i = nodeCount - 1; i >= 0; i--) {
+            errors[i] = errors(validation[i], leafLabels[i]);
+            if (tree.getFeature(i) != null) {
+                int subtreeErrors = errors[tree.getLeft(i)] + errors[tree.getRight(i)];
+                pruned[i] = errors[i] <= subtreeErrors;
+                errors[i] = Math.min(errors[i], subtreeErrors);
+            }
+        }
+        return rebuild(pruned);
+    }
+
+    // Returns the tree pruned down to at most 'maxNodes' nodes. Subtrees are pruned from the
+    //      bottom up, a split with two leaves at a time, each time pruning the split whose leaf
+    //      would misclassify the fewest more of this pruner's datapoints (ties to the split
+    //      found last in breadth-first order).
+    // Throws an IllegalArgumentException
+    //      If 'maxNodes' is less than 1
+    public FrozenClassificationTree pruneToSize(int maxNodes) {
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("Max nodes must be at least 1: " + maxNodes);
+        }
+        int nodeCount = tree.getNodeCount();
+        boolean[] pruned = new boolean[nodeCount];
+        // The cost of pruning a split whose children are both leaves
+        IntToLongFunction cost = node -> errors(counts[node], leafLabels[node]) -
+                errors(counts[tree.getLeft(node)], leafLabels[tree.getLeft(node)]) -
+                errors(counts[tree.getRight(node)], leafLabels[tree.getRight(node)]);
+        PriorityQueue<Integer> twigs = new PriorityQueue<>(
+                Comparator.comparingLong((Integer node) -> cost.applyAsLong(node))
+                          .thenComparing(Comparator.reverseOrder()));
+        for (int i = 0; i < nodeCount; i++) {
+            if (isTwig(i, pruned)) {
+                twigs.add(i);
+            }
+        }
+        int size = nodeCount;
+        while (size > maxNodes && !twigs.isEmpty()) {
+            int node = twigs.poll();
+            pruned[node] = true;
+            size -= 2;
+            if (parents[node] >= 0 && isTwig(parents[node], pruned)) {
+                twigs.add(parents[node]);
+            }
+        }
+        return rebuild(pruned);
+    }
+
+    // Returns the tree pruned down to a depth of at most 'maxDepth' splits on any path from the
+    //      root to a leaf
+    // Throws an IllegalArgumentException
+    //      If 'maxDepth' is negative
+    public FrozenClassificationTree pruneToDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Max depth can't be negative: " + maxDepth);
+        }
+        boolean[] pruned = new boolean[tree.getNodeCount()];
+        for (int i = 0; i < pruned.length; i++) {
+            pruned[i] = tree.getFeature(i) != null && depths[i] == maxDepth;
+        }
+        return rebuild(pruned);
+    }
+
+    // Returns whether the provided node is a split whose children are both leaves, counting
+    //      pruned splits as leaves
+    private boolean isTwig(int node, boolean[] pruned) {
+        return tree.getFeature(node) != null && !pruned[node] &&
+               isLeaf(tree.getLeft(node), pruned) && isLeaf(tree.getRight(node), pruned);
+    }
+
+    // Returns whether the provided node is a leaf or a pruned split
+    private boolean isLeaf(int node, boolean[] pruned) {
+        return tree.getFeature(node) == null || pruned[node];
+    }
+
+    // Returns how many datapoints of each label reach each node, as counts[node][label] (with
+    //      datapoints of labels the tree has never seen counted in one last column)
+    // Throws an IllegalArgumentException
+    //      If the lists are of different sizes
+    private int[][] count(List<Classifiable> data, List<String> labels) {
+        if (data.size() != labels.size()) {
+            throw new IllegalArgumentException("Data and labels provided are of different " +
+                                               "length");
+        }
+        int[][] counts = new int[tree.getNodeCount()][this.labels.length + 1];
+        for (int i = 0; i < data.size(); i++) {
+            int label = labelIds.getOrDefault(labels.get(i), this.labels.length);
+            walk(tree, data.get(i), node -> counts[node][label]++);
+        }
+        return counts;
+    }
+
+    // Returns how many of the datapoints with the provided label counts a leaf with the
+    //      provided label would misclassify
+    private static int errors(int[] counts, int label) {
+        return total(counts) - counts[label];
+    }
+
+    // Returns the sum of the provided counts
+    private static int total(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Returns a copy of the tree with the marked splits replaced by leaves, with the nodes
+    //      renumbered in breadth-first order
+    private FrozenClassificationTree rebuild(boolean[] pruned) {
+        List<Integer> nodes = new ArrayList<>();
+        if (tree.getNodeCount() > 0) {
+            nodes.add(0);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            if (!isLeaf(node, pruned)) {
+                nodes.add(tree.getLeft(node));
+                nodes.add(tree.getRight(node));
+            }
+        }
+
+        Map<Feature, Integer> featureIds = new LinkedHashMap<>();
+        Map<String, Integer> labelIds = new LinkedHashMap<>();
+        int[] featureOf = new int[nodes.size()];
+        double[] thresholds = new double[nodes.size()];
+        int[] left = new int[nodes.size()];
+        int[] right = new int[nodes.size()];
+        int[] labelOf = new int[nodes.size()];
+        int nextChild = 1;
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            if (isLeaf(node, pruned)) {
+                featureOf[i] = -1;
+                labelOf[i] = labelIds.computeIfAbsent(labels[leafLabels[node]],
+                                                      label -> labelIds.size());
+                left[i] = -1;
+                right[i] = -1;
+            } else {
+                featureOf[i] = featureIds.computeIfAbsent(tree.getFeature(node),
+                                                          feature -> featureIds.size());
+                thresholds[i] = tree.getThreshold(node);
+                labelOf[i] = -1;
+                left[i] = nextChild;
+                right[i] = nextChild + 1;
+                nextChild += 2;
+            }
+        }
+        return new FrozenClassificationTree(featureIds.keySet().toArray(new Feature[0]),
+                                            labelIds.keySet().toArray(new String[0]),
+                                            featureOf, thresholds, left, right, labelOf);
+    }
+
+    // Walks the provided 'input' down the tree from the root, passing each node it reaches to
+    //      'visit', until it reaches a leaf or a split on a feature it doesn't support. Returns
+    //      the number of splits it passed through.
+    private static int walk(FrozenClassificationTree tree, Classifiable input,
+                            IntConsumer visit) {
+        if (tree.getNodeCount() == 0) {
+            return 0;
+        }
+        int node = 0;
+        int splits = 0;
+        visit.accept(node);
+        Feature feature = tree.getFeature(node);
+        while (feature != null && input.supports(feature)) {
+            node = input.get(feature) < tree.getThreshold(node) ? tree.getLeft(node)
+                                                                : tree.getRight(node);
+            splits++;
+            visit.accept(node);
+            feature = tree.getFeature(node);
+        }
+        return splits;
+    }
+
+    // The accuracy, size and average path length of a tree on some labelled data, for comparing
+    // a tree before and after pruning
+    public static class Report {
+        private final double accuracy;
+        private final int nodeCount;
+        private final int savedBytes;
+        private final double averagePathLength;
+
+        // Measures the provided tree on the provided data and labels. The label for a
+        //      datapoint at index 'i' within 'data' should be found at the same 'i' within
+        //      'labels'.
+        // 'tree', 'data' and 'labels' should be non-null.
+        // Throws an IllegalArgumentException
+        //      If the lists are of different sizes, or the tree can't classify some datapoint
+        public Report(FrozenClassificationTree tree, List<Classifiable> data,
+                      List<String> labels) {
+            this.accuracy = data.isEmpty() ? 0.0
+                                           : tree.calculateAccuracy(data, labels).get("Overall");
+            this.nodeCount = tree.getNodeCount();
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            tree.save(new PrintStream(saved));
+            this.savedBytes = saved.size();
+            long splits = 0;
+            for (Classifiable datapoint : data) {
+                splits += walk(tree, datapoint, node -> { });
+            }
+            this.averagePathLength = data.isEmpty() ? 0.0 : (double) splits / data.size();
+        }
+
+        // Returns the fraction of the data the tree classifies correctly
+        public double getAccuracy() {
+            return accuracy;
+        }
+
+        // Returns the number of nodes in the tree
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        // Returns the size of the tree when saved with save, in bytes
+        public int getSavedBytes() {
+            return savedBytes;
+        }
+
+        // Returns the average number of splits the data passes through to reach a leaf
+        public double getAveragePathLength() {
+            return averagePathLength;
+        }
+
+        // Returns a String representation of this report
+        public String toString() {
+            return String.format("%.4f accuracy, %d nodes, %d bytes saved, %.2f average path " +
+                                 "length", accuracy, nodeCount, savedBytes, averagePathLength);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.*;
+
+// This abstract class represents a trainer that grows a ClassificationTree top-down, choosing
+// every split by how pure it leaves the children (see CartTrainer and HistogramTrainer). It holds
+// the settings all such trainers share: the impurity measure, the limits on the depth of the
+// tree and the size of its leaves, and the number of features considered for splits. Any
+// trainer can also grow the trees of a RandomForest.
+public abstract class TreeTrainer {
+    public enum Impurity { GINI, ENTROPY }
+
+    public static final int DEFAULT_MAX_FEATURES = 1000;
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private Impurity impurity;
+    private int maxDepth;
+    private int minLeafSize;
+    private int maxFeatures;
+
+    // Constructs a new trainer using Gini impurity, with no depth limit, a minimum leaf size of 1
+    //      and at most DEFAULT_MAX_FEATURES features
+    public TreeTrainer() {
+        this.impurity = Impurity.GINI;
+        this.maxDepth = Integer.MAX_VALUE;
+        this.minLeafSize = 1;
+        this.maxFeatures = DEFAULT_MAX_FEATURES;
+    }
+
+    // Sets the impurity measure splits are chosen by
+    // 'impurity' should be non-null.
+    public void setImpurity(Impurity impurity) {
+        this.impurity = impurity;
+    }
+
+    // Sets the largest number of splits on any path from the root to a leaf
+    // Throws an IllegalArgumentException
+    //      If 'maxDepth' is negative
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Max depth can't be negative: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    // Sets the smallest number of training datapoints a leaf may hold
+    // Throws an IllegalArgumentException
+    //      If 'minLeafSize' is less than 1
+    public void setMinLeafSize(int minLeafSize) {
+        if (minLeafSize < 1) {
+            throw new IllegalArgumentException("Min leaf size must be at least 1: " +
+                                               minLeafSize);
+        }
+        this.minLeafSize = minLeafSize;
+    }
+
+    // Sets the largest number of features considered for splits. When the training data has
+    //      more candidate features than this (see Classifiable.getCandidateFeatures), the ones
+    //      that are non-zero for the most datapoints are used.
+    // Throws an IllegalArgumentException
+    //      If 'maxFeatures' is less than 1
+    public void setMaxFeatures(int maxFeatures) {
+        if (maxFeatures < 1) {
+            throw new IllegalArgumentException("Max features must be at least 1: " +
+                                               maxFeatures);
+        }
+        this.maxFeatures = maxFeatures;
+    }
+
+    // Returns the impurity measure splits are chosen by
+    public Impurity getImpurity() {
+        return impurity;
+    }
+
+    // Returns the largest number of splits on any path from the root to a leaf
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    // Returns the smallest number of training datapoints a leaf may hold
+    public int getMinLeafSize() {
+        return minLeafSize;
+    }
+
+    // Returns the largest number of features considered for splits
+    public int getMaxFeatures() {
+        return maxFeatures;
+    }
+
+    // Trains and returns a new ClassificationTree on the provided data and labels. The label for
+    //      a datapoint at index 'i' within 'data' should be found at the same 'i' within
+    //      'labels'.
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    public ClassificationTree train(List<Classifiable> data, List<String> labels) {
+        return new ClassificationTree(trainFrozen(data, labels));
+    }
+
+    // Trains and returns a new tree on the provided data and labels, like train, but returns it
+    //      in frozen form
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    public abstract FrozenClassificationTree trainFrozen(List<Classifiable> data,
+                                                         List<String> labels);
+
+    // Returns a Sampler training trees on samples of the provided data and labels, which are
+    //      prepared once for all of them
+    // 'data' and 'labels' should be non-null.
+    // Throws an IllegalArgumentException
+    //      If the lists are empty or of different sizes, or the datapoints aren't all of the
+    //      same type
+    abstract Sampler sampler(List<Classifiable> data, List<String> labels);
+
+    // Trains trees on samples of training data that a trainer has prepared, as the trees of a
+    // RandomForest are. Trees may be trained from several threads at once.
+    interface Sampler {
+        // Returns the number of features the trees can split on
+        int featureCount();
+
+        // Trains a tree on the provided rows of the training data. A row may appear more than
+        //      once (as in a bootstrap sample). If 'featuresPerSplit' is less than
+        //      featureCount(), each node only considers that many features, chosen at random
+        //      with 'rand'.
+        // 'rows' should be non-null, and 'rand' should be non-null if features are chosen at
+        //      random.
+        FrozenClassificationTree train(int[] rows, int featuresPerSplit, Random rand);
+    }
+
+    // Returns the impurity of a node with the provided label counts and size, weighted by
+    //      its size (so the impurities of two children can simply be added)
+    double weightedImpurity(int[] counts, int size) {
+        double sum = 0;
+        if (impurity == Impurity.GINI) {
+            for (int count : counts) {
+                sum += (double) count * count;
+            }
+            return size - sum / size;
+        }
+        for (int count : counts) {
+            if (count > 0) {
+                sum += count * Math.log(count);
+            }
+        }
+        return size * Math.log(size) - sum;
+    }
+
+    // Returns the label held by the most rows, given the label counts (ties to the label
+    //      that comes first in sorted order)
+    static int majority(int[] counts) {
+        int best = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Returns 'count' of the provided features, chosen at random with 'rand' and in increasing
+    //      order, or all of them (the array itself) if there are no more than 'count'
+    static int[] chooseAtRandom(int[] features, int count, Random rand) {
+        if (count >= features.length) {
+            return features;
+        }
+        // The first 'count' entries of a partial Fisher-Yates shuffle
+        int[] shuffled = features.clone();
+        for (int i = 0; i < count; i++) {
+            int j = i + rand.nextInt(shuffled.length - i);
+            int temp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = temp;
+        }
+        int[] chosen = Arrays.copyOf(shuffled, count);
+        Arrays.sort(chosen);
+        return chosen;
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// This class represents the global vocabulary shared by every Email: a numbering of all the
+// words seen so far, so that emails can store and compare words as int IDs instead of Strings.
+// IDs are handed out in the order words are first seen and never change. Looking up a word
+// that is already known never blocks, so emails can be parsed on several threads at once.
+// The vocabulary holds at most MAX_WORDS words, so a long-running program reading new words
+// forever doesn't keep all of them: once it is full, words not yet known get no ID, and emails
+// keep them as Strings instead.
+public final class Vocabulary {
+    public static final int MAX_WORDS = 1 << 20;
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static String[] words = new String[1024];
+    private static int size = 0;
+
+    private Vocabulary() {
+    }
+
+    // Returns the ID of the provided word, giving it a new ID if it hasn't been seen before.
+    //      Returns -1 if the word hasn't been seen before and the vocabulary is full.
+    // 'word' should be non-null.
+    public static int intern(String word) {
+        Integer id = IDS.get(word);
+        if (id != null) {
+            return id;
+        }
+        synchronized (Vocabulary.class) {
+            id = IDS.get(word);
+            if (id == null) {
+                if (size == MAX_WORDS) {
+                    return -1;
+                }
+                if (size == words.length) {
+                    words = Arrays.copyOf(words, size * 2);
+                }
+                id = size;
+                words[size] = word;
+                size++;
+                IDS.put(word, id);
+            }
+            return id;
+        }
+    }
+
+    // Returns the ID of the provided word, or -1 if it hasn't been seen before
+    // 'word' should be non-null.
+    public static int find(String word) {
+        Integer id = IDS.get(word);
+        return id == null ? -1 : id;
+    }
+
+    // Returns the word with the provided ID
+    // Throws an IllegalArgumentException
+    //      If no word has that ID
+    public static synchronized String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No word with ID " + id);
+        }
+        return words[id];
+    }
+
+    // Returns the number of words in the vocabulary
+    public static synchronized int size() {
+        return size;
+    }
+}
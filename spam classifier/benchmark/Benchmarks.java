@@ -0,0 +1,216 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+// The datasets, models and helpers shared by the classifier benchmarks in this directory.
+//
+// Every benchmark is its own class with a main method. Compile and run from the spam classifier
+// directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out FrozenTreeBenchmark
+public class Benchmarks {
+    public static final String SONG_TRAIN_FILE = "data/songs/train.csv";
+    public static final String SONG_TEST_FILE = "data/songs/test.csv";
+    public static final int SONG_LABEL_INDEX = 9;
+    public static final String EMAIL_TEST_FILE = "data/emails/test.csv";
+    public static final int EMAIL_LABEL_INDEX = 0;
+    public static final String EMAIL_MODEL_FILE = "trees/large.txt";
+    public static final String EMAIL_TRAIN_FILE = "data/emails/train.csv";
+    public static final int SYNTHETIC_SIZE = 100000;
+    public static final int SYNTHETIC_VOCABULARY = 20000;
+    public static final int SYNTHETIC_WORDS_PER_EMAIL = 40;
+    public static final int SYNTHETIC_MODEL_DEPTH = 18;
+    public static final int FOREST_SIZE = 50;
+    public static final int ROUNDS = 20;
+
+    private Benchmarks() {
+    }
+
+    // Returns the synthetic dataset size given as the first command line argument, or
+    //      SYNTHETIC_SIZE if there is none
+    public static int syntheticSize(String[] args) {
+        return args.length > 0 ? Integer.parseInt(args[0]) : SYNTHETIC_SIZE;
+    }
+
+    // Runs the provided task ROUNDS times after ROUNDS warm-up runs, returning the average
+    //      number of nanoseconds per run
+    public static double time(Runnable task) {
+        for (int i = 0; i < ROUNDS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            task.run();
+        }
+        return (double) (System.nanoTime() - start) / ROUNDS;
+    }
+
+    // Prints one report line: the provided name and variant and the time in milliseconds
+    public static void printTime(String name, String variant, double nanos) {
+        System.out.printf("%-10s %-14s %10.3f ms%n", name, variant, nanos / 1e6);
+    }
+
+    // Prints one report line: the provided name and variant, the time in milliseconds and the
+    //      speedup over 'baselineNanos'
+    public static void printTime(String name, String variant, double nanos,
+                                 double baselineNanos) {
+        System.out.printf("%-10s %-14s %10.3f ms (%.2fx)%n", name, variant, nanos / 1e6,
+                          baselineNanos / nanos);
+    }
+
+    // Runs the provided task on fork-join pools of 1, 2, 4, ... threads up to the number of
+    //      available processors, printing the time and speedup over one thread for each
+    public static void scale(String name, Runnable task) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        double single = 0;
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double nanos = time(() -> pool.invoke(ForkJoinTask.adapt(task)));
+            pool.shutdown();
+            if (threads == 1) {
+                single = nanos;
+            }
+            System.out.printf("%-10s %2d threads %12.3f ms (%.2fx)%n", name, threads,
+                              nanos / 1e6, single / nanos);
+        }
+    }
+
+    // Times classifying all of the provided data with the 'baseline' classifier and with the
+    //      'candidate' classifier, printing the time per datapoint for each
+    // Throws an IllegalStateException
+    //      If the two classifiers don't produce the same labels
+    public static void compare(String name, List<Classifiable> data, Classifier baseline,
+                               Classifier candidate) {
+        List<String> expected = classifyEach(baseline, data);
+        if (!expected.equals(classifyEach(candidate, data))) {
+            throw new IllegalStateException(name + ": classifiers disagree");
+        }
+        double baselineNanos = time(() -> classifyEach(baseline, data)) / data.size();
+        double candidateNanos = time(() -> classifyEach(candidate, data)) / data.size();
+        System.out.printf("%-10s %-28s %10.1f ns/datapoint%n", name,
+                          baseline.getClass().getSimpleName(), baselineNanos);
+        System.out.printf("%-10s %-28s %10.1f ns/datapoint (%.2fx)%n", name,
+                          candidate.getClass().getSimpleName(), candidateNanos,
+                          baselineNanos / candidateNanos);
+    }
+
+    // Returns the labels the provided classifier assigns to each of the provided datapoints
+    public static List<String> classifyEach(Classifier c, List<Classifiable> data) {
+        List<String> results = new ArrayList<>(data.size());
+        for (Classifiable datapoint : data) {
+            results.add(c.classify(datapoint));
+        }
+        return results;
+    }
+
+    // Loads the song training set with a DataLoader
+    public static DataLoader songTrain() {
+        return load(SONG_TRAIN_FILE, SONG_LABEL_INDEX, Song::toClassifiable);
+    }
+
+    // Loads the song test set with a DataLoader
+    public static DataLoader songTest() {
+        return load(SONG_TEST_FILE, SONG_LABEL_INDEX, Song::toClassifiable);
+    }
+
+    // Loads the email training set with a DataLoader
+    public static DataLoader emailTrain() {
+        return load(EMAIL_TRAIN_FILE, EMAIL_LABEL_INDEX, Email::toClassifiable);
+    }
+
+    // Loads the email test set with a DataLoader
+    public static DataLoader emailTest() {
+        return load(EMAIL_TEST_FILE, EMAIL_LABEL_INDEX, Email::toClassifiable);
+    }
+
+    // Returns a ClassificationTree trained on the song training set
+    public static ClassificationTree songTree() {
+        DataLoader train = songTrain();
+        return new ClassificationTree(train.getData(), train.getLabels());
+    }
+
+    // Loads the provided CSV file with a DataLoader
+    // Throws an UncheckedIOException
+    //      If the file doesn't exist
+    public static DataLoader load(String fileName, int labelIndex,
+                                  Function<List<String>, Classifiable> converter) {
+        try {
+            return new DataLoader(fileName, labelIndex, converter);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Loads a ClassificationTree from the provided model file
+    // Throws an UncheckedIOException
+    //      If the file doesn't exist or can't be read
+    public static ClassificationTree loadTree(String fileName) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            return new ClassificationTree(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns a random, full email model of depth SYNTHETIC_MODEL_DEPTH (see
+    //      writeSyntheticModel), always the same one
+    public static ClassificationTree syntheticModel() {
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        writeSyntheticModel(new PrintStream(model), SYNTHETIC_MODEL_DEPTH, new Random(123));
+        return new ClassificationTree(new Scanner(new ByteArrayInputStream(model.toByteArray())));
+    }
+
+    // Writes a random, full email model of the provided depth to 'ps' in the text format of
+    //      ClassificationTree.save. Splits are on words from a vocabulary of
+    //      SYNTHETIC_VOCABULARY words.
+    public static void writeSyntheticModel(PrintStream ps, int depth, Random rand) {
+        if (depth == 0) {
+            ps.println(rand.nextBoolean() ? "spam" : "ham");
+        } else {
+            ps.println("Feature: wordPercent~w" + rand.nextInt(SYNTHETIC_VOCABULARY));
+            ps.println("Threshold: " + rand.nextDouble() / 10);
+            writeSyntheticModel(ps, depth - 1, rand);
+            writeSyntheticModel(ps, depth - 1, rand);
+        }
+    }
+
+    // Fills the provided lists with 'count' random songs labelled "pop" or "rock" by a noisy
+    //      function of their danceability and energy. If 'precision' is positive, the values
+    //      are rounded to multiples of 1 / precision.
+    public static void syntheticSongs(int count, int precision, List<Classifiable> data,
+                                      List<String> labels) {
+        Random rand = new Random(123);
+        for (int i = 0; i < count; i++) {
+            double danceability = rand.nextDouble();
+            double energy = rand.nextDouble();
+            if (precision > 0) {
+                danceability = Math.round(danceability * precision) / (double) precision;
+                energy = Math.round(energy * precision) / (double) precision;
+            }
+            double score = danceability + energy * energy + 0.2 * rand.nextGaussian();
+            data.add(new Song(danceability, energy, 0, 0, 0, 0));
+            labels.add(score > 1 ? "pop" : "rock");
+        }
+    }
+
+    // Fills the provided lists with 'count' random emails and their labels. Words are drawn
+    //      from a vocabulary of SYNTHETIC_VOCABULARY words with a skewed (Zipf-like)
+    //      distribution, and an email is spam exactly when it contains one of a handful of
+    //      "spammy" words, so the resulting tree stays reasonably small.
+    public static void syntheticEmails(int count, List<Classifiable> data, List<String> labels) {
+        Random rand = new Random(123);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.setLength(0);
+            boolean spam = false;
+            for (int j = 0; j < SYNTHETIC_WORDS_PER_EMAIL; j++) {
+                int word = (int) Math.pow(SYNTHETIC_VOCABULARY, rand.nextDouble()) - 1;
+                spam |= word >= 5 && word < 10;
+                content.append('w').append(word).append(' ');
+            }
+            data.add(new Email(content.toString()));
+            labels.add(spam ? "spam" : "ham");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.*;
+import java.util.*;
+
+// Compares loading a synthetic email model (a full tree of depth
+// Benchmarks.SYNTHETIC_MODEL_DEPTH) from the text format with loading it from the
+// memory-mapped binary format, printing the file sizes and load times. Throws an
+// IllegalStateException if the two models don't classify the email test set the same way.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out BinaryModelBenchmark
+public class BinaryModelBenchmark {
+    public static void main(String[] args) throws IOException {
+        File text = File.createTempFile("model", ".txt");
+        File binary = File.createTempFile("model", ".bin");
+        text.deleteOnExit();
+        binary.deleteOnExit();
+        try (PrintStream ps = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(text)))) {
+            Benchmarks.writeSyntheticModel(ps, Benchmarks.SYNTHETIC_MODEL_DEPTH, new Random(123));
+        }
+        ModelConverter.toBinary(text.getPath(), binary.getPath());
+
+        List<Classifiable> emails = Benchmarks.emailTest().getData();
+        Classifier fromText = Benchmarks.loadTree(text.getPath());
+        Classifier fromBinary = FrozenClassificationTree.loadBinary(binary.getPath());
+        if (!Benchmarks.classifyEach(fromText, emails).equals(
+                Benchmarks.classifyEach(fromBinary, emails))) {
+            throw new IllegalStateException("binary: models disagree");
+        }
+
+        double textNanos = Benchmarks.time(() -> Benchmarks.loadTree(text.getPath()));
+        double binaryNanos = Benchmarks.time(() -> {
+            try {
+                FrozenClassificationTree.loadBinary(binary.getPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        System.out.printf("%-8s %12d bytes %12.3f ms%n", "text", text.length(),
+                          textNanos / 1e6);
+        System.out.printf("%-8s %12d bytes %12.3f ms (%.2fx)%n", "binary", binary.length(),
+                          binaryNanos / 1e6, textNanos / binaryNanos);
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.*;
+
+// Puts a CachingClassifier in front of a song model (trained on the song training set), the
+// trees/large.txt model and a RandomForest of Benchmarks.FOREST_SIZE trees trained on the email
+// training set, and classifies the synthetic number of datapoints (a tenth as many for the
+// forest) drawn from the test sets, favouring some datapoints much more than others. Each draw
+// is a separately loaded copy, so hits come from equal datapoints rather than the same objects.
+// Prints the number of distinct datapoints in each test set, the hit rates of caches of several
+// sizes and the classification latency with and without the cache. Throws an
+// IllegalStateException if a cache returns a stale label after its model is swapped.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out CacheBenchmark [datapoints]
+public class CacheBenchmark {
+    public static final int CACHE_CAPACITY = 1024;
+
+    public static void main(String[] args) {
+        int count = Benchmarks.syntheticSize(args);
+        compare("songs", count, Benchmarks.songTree().freeze(),
+                Benchmarks.songTest().getData(), Benchmarks.songTest().getData());
+
+        FrozenClassificationTree emailTree =
+                Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE).freeze();
+        compare("emails", count, emailTree, Benchmarks.emailTest().getData(),
+                Benchmarks.emailTest().getData());
+
+        DataLoader emailTrain = Benchmarks.emailTrain();
+        compare("forest", count / 10, new RandomForest(emailTrain.getData(),
+                        emailTrain.getLabels(), Benchmarks.FOREST_SIZE, new CartTrainer(),
+                        new Random(123)),
+                Benchmarks.emailTest().getData(), Benchmarks.emailTest().getData());
+
+        // Swapping the model must empty the cache
+        List<Classifiable> emails = Benchmarks.emailTest().getData();
+        CachingClassifier cache = new CachingClassifier(emailTree, CACHE_CAPACITY);
+        Benchmarks.classifyEach(cache, emails);
+        FrozenClassificationTree other = Benchmarks.loadTree("trees/medium.txt").freeze();
+        cache.setModel(other);
+        if (cache.size() != 0 || !Benchmarks.classifyEach(cache, emails).equals(
+                Benchmarks.classifyEach(other, emails))) {
+            throw new IllegalStateException("cache: stale labels after swapping the model");
+        }
+    }
+
+    // Runs the comparisons for one model on 'count' datapoints, drawing them from two
+    //      separately loaded copies of the same test set
+    private static void compare(String name, int count, Classifier model,
+                                List<Classifiable> test, List<Classifiable> copy) {
+        System.out.printf("%-10s %d datapoints, %d distinct%n", name, test.size(),
+                          new HashSet<>(test).size());
+        Random rand = new Random(123);
+        List<Classifiable> traffic = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = (int) (test.size() * Math.pow(rand.nextDouble(), 3));
+            traffic.add(i % 2 == 0 ? test.get(index) : copy.get(index));
+        }
+        for (int capacity = CACHE_CAPACITY / 16; capacity <= CACHE_CAPACITY; capacity *= 4) {
+            CachingClassifier cache = new CachingClassifier(model, capacity);
+            Benchmarks.classifyEach(cache, traffic);
+            System.out.printf("%-10s capacity %-6d %6.2f%% hit rate%n", name, capacity,
+                              100 * cache.getHitRate());
+        }
+        Benchmarks.compare(name, traffic, model, new CachingClassifier(model, CACHE_CAPACITY));
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.*;
+import java.util.function.*;
+
+// Compares the incremental ClassificationTree training with CartTrainer (with and without
+// limits) on the song and email training sets and on a synthetic email corpus (a fifth of the
+// synthetic size, see Benchmarks.syntheticEmails), printing the training time, the size and
+// depth of the tree and its accuracy on the test set.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out CartBenchmark [synthetic size]
+public class CartBenchmark {
+    public static void main(String[] args) {
+        DataLoader songTrain = Benchmarks.songTrain();
+        DataLoader songTest = Benchmarks.songTest();
+        compare("songs", songTrain.getData(), songTrain.getLabels(), songTest.getData(),
+                songTest.getLabels());
+
+        DataLoader emailTrain = Benchmarks.emailTrain();
+        DataLoader emailTest = Benchmarks.emailTest();
+        compare("emails", emailTrain.getData(), emailTrain.getLabels(), emailTest.getData(),
+                emailTest.getLabels());
+
+        List<Classifiable> data = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        Benchmarks.syntheticEmails(Benchmarks.syntheticSize(args) / 5, data, labels);
+        int split = data.size() * 4 / 5;
+        compare("synthetic", data.subList(0, split), labels.subList(0, split),
+                data.subList(split, data.size()), labels.subList(split, data.size()));
+    }
+
+    // Trains on the provided training data with the incremental ClassificationTree constructor
+    //      and with CartTrainer, printing the training time, the size and depth of each tree
+    //      and its accuracy on the provided test data
+    private static void compare(String name, List<Classifiable> trainData,
+                                List<String> trainLabels, List<Classifiable> testData,
+                                List<String> testLabels) {
+        Map<String, Supplier<Classifier>> trainers = new LinkedHashMap<>();
+        trainers.put("incremental", () -> new ClassificationTree(trainData, trainLabels));
+        trainers.put("cart", () -> new CartTrainer().train(trainData, trainLabels));
+        trainers.put("cart (depth 8, leaf 5)", () -> {
+            CartTrainer trainer = new CartTrainer();
+            trainer.setMaxDepth(8);
+            trainer.setMinLeafSize(5);
+            return trainer.train(trainData, trainLabels);
+        });
+        trainers.put("cart (entropy)", () -> {
+            CartTrainer trainer = new CartTrainer();
+            trainer.setImpurity(CartTrainer.Impurity.ENTROPY);
+            return trainer.train(trainData, trainLabels);
+        });
+        for (String trainer : trainers.keySet()) {
+            Supplier<Classifier> train = trainers.get(trainer);
+            long start = System.nanoTime();
+            FrozenClassificationTree tree = ((ClassificationTree) train.get()).freeze();
+            double millis = (System.nanoTime() - start) / 1e6;
+            double accuracy = tree.calculateAccuracy(testData, testLabels).get("Overall");
+            System.out.printf("%-10s %-24s %10.1f ms %7d nodes %6d deep %8.4f accuracy%n", name,
+                              trainer, millis, tree.getNodeCount(), tree.getDepth(), accuracy);
+        }
+    }
+}
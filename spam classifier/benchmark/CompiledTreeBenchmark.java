@@ -0,0 +1,27 @@
+import java.util.*;
+
+// Compares the classification latency of a ClassificationTree and its frozen form with its
+// compiled form, on the same data and models as FrozenTreeBenchmark and on a synthetic email
+// model (a full tree of depth Benchmarks.SYNTHETIC_MODEL_DEPTH), checking that all forms give
+// the same labels.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out CompiledTreeBenchmark
+public class CompiledTreeBenchmark {
+    public static void main(String[] args) {
+        compare("songs", Benchmarks.songTest().getData(), Benchmarks.songTree());
+
+        List<Classifiable> emails = Benchmarks.emailTest().getData();
+        compare("emails", emails, Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE));
+        compare("synthetic", emails, Benchmarks.syntheticModel());
+    }
+
+    // Compares the provided tree and its frozen form with its compiled form on the provided data
+    private static void compare(String name, List<Classifiable> data, ClassificationTree tree) {
+        FrozenClassificationTree frozen = tree.freeze();
+        CompiledClassificationTree compiled = frozen.compile();
+        Benchmarks.compare(name, data, tree, compiled);
+        Benchmarks.compare(name, data, frozen, compiled);
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.*;
+import java.util.*;
+
+// Compares reading the song and email test sets with the old regular expression CsvReader and
+// with the CsvParser-based one, and times a bare pass of the CsvParser over each file (reading
+// every row without turning any field into a String). Throws an IllegalStateException if the
+// two readers don't produce the same rows.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out CsvBenchmark
+public class CsvBenchmark {
+    public static void main(String[] args) throws IOException {
+        compare("songs", Benchmarks.SONG_TEST_FILE);
+        compare("emails", Benchmarks.EMAIL_TEST_FILE);
+    }
+
+    // Times the two readers and the bare parser on the provided file
+    private static void compare(String name, String fileName) throws IOException {
+        if (!CsvReader.readWithRegex(fileName).equals(CsvReader.read(fileName))) {
+            throw new IllegalStateException(fileName + ": readers disagree");
+        }
+        double regexNanos = Benchmarks.time(() -> readRows(fileName, true));
+        double parserNanos = Benchmarks.time(() -> readRows(fileName, false));
+        double passNanos = Benchmarks.time(() -> {
+            try (CsvParser parser = CsvParser.open(fileName, true)) {
+                while (parser.next()) {
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Benchmarks.printTime(name, "regex", regexNanos);
+        Benchmarks.printTime(name, "CsvParser", parserNanos, regexNanos);
+        Benchmarks.printTime(name, "parser only", passNanos, regexNanos);
+    }
+
+    // Reads the provided CSV file with the regular expression CsvReader if 'regex' is true, or
+    //      with the CsvParser-based one otherwise
+    private static List<List<String>> readRows(String fileName, boolean regex) {
+        try {
+            return regex ? CsvReader.readWithRegex(fileName) : CsvReader.read(fileName);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+import java.util.*;
+
+// Times training a ClassificationTree on the email training set and on a synthetic corpus of
+// emails (see Benchmarks.syntheticEmails).
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out EmailTrainingBenchmark [synthetic emails]
+public class EmailTrainingBenchmark {
+    public static void main(String[] args) {
+        DataLoader train = Benchmarks.emailTrain();
+        double nanos = Benchmarks.time(() -> new ClassificationTree(train.getData(),
+                                                                    train.getLabels()));
+        System.out.printf("%-10s %9d emails %12.3f ms%n", "train.csv", train.getData().size(),
+                          nanos / 1e6);
+
+        List<Classifiable> data = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        Benchmarks.syntheticEmails(Benchmarks.syntheticSize(args), data, labels);
+        long start = System.nanoTime();
+        new ClassificationTree(data, labels);
+        System.out.printf("%-10s %9d emails %12.3f ms%n", "synthetic", data.size(),
+                          (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Trains a RandomForest of Benchmarks.FOREST_SIZE trees on the email training set on fork-join
+// pools of 1, 2, 4, ... threads up to the number of available processors, printing the
+// training time and speedup for each, then compares the accuracy of the forest on the email
+// test set with that of a single CART tree and of a forest of HistogramTrainer trees, and checks
+// that it saves and loads unchanged. Also times classifying the test set one datapoint at a time
+// and in batches with classifyAll. Throws an IllegalStateException if the forests trained with
+// different numbers of threads, the loaded forest, or classifyAll don't classify the test set
+// the same way.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out ForestBenchmark
+public class ForestBenchmark {
+    public static void main(String[] args) {
+        DataLoader train = Benchmarks.emailTrain();
+        DataLoader test = Benchmarks.emailTest();
+
+        // Every thread count must grow the very same forest
+        int processors = Runtime.getRuntime().availableProcessors();
+        RandomForest forest = null;
+        List<String> expected = null;
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            forest = pool.invoke(ForkJoinTask.adapt(() -> train(train, new CartTrainer())));
+            pool.shutdown();
+            List<String> results = Benchmarks.classifyEach(forest, test.getData());
+            if (expected != null && !expected.equals(results)) {
+                throw new IllegalStateException("forest: training isn't deterministic");
+            }
+            expected = results;
+        }
+        Benchmarks.scale("train", () -> train(train, new CartTrainer()));
+
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        forest.save(new PrintStream(saved));
+        RandomForest loaded = new RandomForest(new Scanner(
+                new ByteArrayInputStream(saved.toByteArray())));
+        if (!expected.equals(Benchmarks.classifyEach(loaded, test.getData()))) {
+            throw new IllegalStateException("forest: loaded forest disagrees");
+        }
+
+        RandomForest trained = forest;
+        if (!expected.equals(trained.classifyAll(test.getData()))) {
+            throw new IllegalStateException("forest: classifyAll disagrees");
+        }
+        double eachNanos = Benchmarks.time(() -> Benchmarks.classifyEach(trained,
+                                                                         test.getData()));
+        double allNanos = Benchmarks.time(() -> trained.classifyAll(test.getData()));
+        Benchmarks.printTime("classify", "classify", eachNanos);
+        Benchmarks.printTime("classify", "classifyAll", allNanos, eachNanos);
+
+        Classifier tree = new CartTrainer().train(train.getData(), train.getLabels());
+        System.out.printf("%-24s %8.4f accuracy%n", "single CART tree",
+                          tree.calculateAccuracy(test.getData(), test.getLabels()).get("Overall"));
+        System.out.printf("%-24s %8.4f accuracy%n", "forest of " + Benchmarks.FOREST_SIZE,
+                          forest.calculateAccuracy(test.getData(), test.getLabels())
+                                .get("Overall"));
+        long start = System.nanoTime();
+        RandomForest binned = train(train, new HistogramTrainer());
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-24s %8.4f accuracy %10.3f ms%n", "histogram forest",
+                          binned.calculateAccuracy(test.getData(), test.getLabels())
+                                .get("Overall"), millis);
+    }
+
+    // Trains a RandomForest of Benchmarks.FOREST_SIZE trees on the provided data with the
+    //      provided trainer, always with the same seed
+    private static RandomForest train(DataLoader train, TreeTrainer trainer) {
+        return new RandomForest(train.getData(), train.getLabels(), Benchmarks.FOREST_SIZE,
+                                trainer, new Random(123));
+    }
+}
@@ -0,0 +1,17 @@
+// Compares the classification latency of a ClassificationTree with its frozen form, on the song
+// test set (with a model trained on the song training set) and on the email test set (with the
+// trees/large.txt model), checking that both forms give the same labels.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out FrozenTreeBenchmark
+public class FrozenTreeBenchmark {
+    public static void main(String[] args) {
+        ClassificationTree songTree = Benchmarks.songTree();
+        Benchmarks.compare("songs", Benchmarks.songTest().getData(), songTree, songTree.freeze());
+
+        ClassificationTree emailTree = Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE);
+        Benchmarks.compare("emails", Benchmarks.emailTest().getData(), emailTree,
+                           emailTree.freeze());
+    }
+}
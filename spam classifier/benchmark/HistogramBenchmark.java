@@ -0,0 +1,83 @@
+import java.util.*;
+
+// Compares CartTrainer with HistogramTrainer on the email data and on synthetic songs with
+// continuous features (see Benchmarks.syntheticSongs), printing the memory taken by the
+// training columns of each, the training time, the size of each tree and its accuracy. Also
+// checks that on songs whose features have no more distinct values than bins, the two trainers
+// grow the same tree, throwing an IllegalStateException if they don't.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out HistogramBenchmark [synthetic songs]
+public class HistogramBenchmark {
+    public static void main(String[] args) {
+        DataLoader emailTrain = Benchmarks.emailTrain();
+        DataLoader emailTest = Benchmarks.emailTest();
+        compare("emails", emailTrain.getData(), emailTrain.getLabels(), emailTest.getData(),
+                emailTest.getLabels());
+
+        int size = Benchmarks.syntheticSize(args);
+        List<Classifiable> data = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        Benchmarks.syntheticSongs(size, 0, data, labels);
+        int split = data.size() * 4 / 5;
+        compare("synthetic", data.subList(0, split), labels.subList(0, split),
+                data.subList(split, data.size()), labels.subList(split, data.size()));
+
+        data.clear();
+        labels.clear();
+        Benchmarks.syntheticSongs(size, 100, data, labels);
+        FrozenClassificationTree exact = new CartTrainer().trainFrozen(data, labels);
+        FrozenClassificationTree binned = new HistogramTrainer().trainFrozen(data, labels);
+        if (exact.getNodeCount() != binned.getNodeCount() ||
+                !Benchmarks.classifyEach(exact, data).equals(
+                        Benchmarks.classifyEach(binned, data))) {
+            throw new IllegalStateException("histogram: trees of few distinct values differ");
+        }
+        System.out.printf("%-10s %d nodes, same as CartTrainer%n", "rounded",
+                          binned.getNodeCount());
+    }
+
+    // Trains on the provided training data with CartTrainer and with HistogramTrainer (taking
+    //      the best of three runs of each), printing the memory taken by their training columns,
+    //      the training time, the size of each tree and its accuracy on the provided test data
+    private static void compare(String name, List<Classifiable> trainData,
+                                List<String> trainLabels, List<Classifiable> testData,
+                                List<String> testLabels) {
+        // Values and sorted orders of every feature, plus the builder's copy of the orders
+        CartTrainer.Dataset exact = new CartTrainer().dataset(trainData, trainLabels);
+        long exactBytes = 16L * exact.features.length * trainData.size();
+        // One byte per value, plus the builder's rows and spare rows
+        HistogramTrainer.BinnedDataset binned = new HistogramTrainer().binnedDataset(trainData,
+                                                                                    trainLabels);
+        long binnedBytes = (long) binned.features.length * trainData.size() +
+                           8L * trainData.size();
+        System.out.printf("%-10s %d features, columns %.1f MB exact, %.1f MB binned (%.1fx)%n",
+                          name, exact.features.length, exactBytes / 1e6, binnedBytes / 1e6,
+                          (double) exactBytes / binnedBytes);
+
+        Map<String, TreeTrainer> trainers = new LinkedHashMap<>();
+        trainers.put("cart", new CartTrainer());
+        trainers.put("histogram", new HistogramTrainer());
+        HistogramTrainer coarse = new HistogramTrainer();
+        coarse.setMaxBins(32);
+        trainers.put("histogram (32 bins)", coarse);
+        double baseline = 0;
+        for (String trainer : trainers.keySet()) {
+            FrozenClassificationTree tree = null;
+            double millis = Double.MAX_VALUE;
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                tree = trainers.get(trainer).trainFrozen(trainData, trainLabels);
+                millis = Math.min(millis, (System.nanoTime() - start) / 1e6);
+            }
+            if (baseline == 0) {
+                baseline = millis;
+            }
+            double accuracy = tree.calculateAccuracy(testData, testLabels).get("Overall");
+            System.out.printf("%-10s %-20s %10.1f ms (%.2fx) %7d nodes %8.4f accuracy%n", name,
+                              trainer, millis, baseline / millis, tree.getNodeCount(),
+                              accuracy);
+        }
+    }
+}
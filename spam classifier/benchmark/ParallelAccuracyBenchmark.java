@@ -0,0 +1,20 @@
+// Times calculateAccuracy on the song test set (with a model trained on the song training set)
+// and on the email test set (with the trees/large.txt model) on fork-join pools of 1, 2, 4, ...
+// threads up to the number of available processors, printing the time and speedup for each.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out ParallelAccuracyBenchmark
+public class ParallelAccuracyBenchmark {
+    public static void main(String[] args) {
+        scale("songs", Benchmarks.songTree(), Benchmarks.songTest());
+        scale("emails", Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE),
+              Benchmarks.emailTest());
+    }
+
+    // Times calculateAccuracy of the provided classifier on the provided test data with
+    //      increasing numbers of threads
+    private static void scale(String name, Classifier c, DataLoader test) {
+        Benchmarks.scale(name, () -> c.calculateAccuracy(test.getData(), test.getLabels()));
+    }
+}
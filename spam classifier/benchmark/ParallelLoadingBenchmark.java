@@ -0,0 +1,50 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+// Compares loading the song and email training sets with the DataLoader constructor and with
+// DataLoader.loadParallel. Both loaders are checked to produce the same labels, and the same
+// predictions from a model, when shuffled with the same seed; an IllegalStateException is
+// thrown if they don't.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out ParallelLoadingBenchmark
+public class ParallelLoadingBenchmark {
+    public static void main(String[] args) {
+        compare("songs", Benchmarks.songTree(), Benchmarks.SONG_TRAIN_FILE,
+                Benchmarks.SONG_LABEL_INDEX, Song::toClassifiable, row -> List.of());
+        compare("emails", Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE),
+                Benchmarks.EMAIL_TRAIN_FILE, Benchmarks.EMAIL_LABEL_INDEX,
+                Email::toClassifiable, Email::words);
+    }
+
+    // Times loading the provided file with the DataLoader constructor and with
+    //      DataLoader.loadParallel (splitting rows into words with 'toWords'), checking the
+    //      loaders against each other with the provided classifier
+    private static void compare(String name, Classifier c, String fileName, int labelIndex,
+                                Function<List<String>, Classifiable> converter,
+                                Function<List<String>, List<String>> toWords) {
+        Supplier<DataLoader> parallel = () -> {
+            try {
+                return DataLoader.loadParallel(fileName, labelIndex, converter, toWords);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        DataLoader.RAND.setSeed(42);
+        DataLoader expected = Benchmarks.load(fileName, labelIndex, converter);
+        DataLoader.RAND.setSeed(42);
+        DataLoader actual = parallel.get();
+        if (!expected.getLabels().equals(actual.getLabels()) ||
+                !Benchmarks.classifyEach(c, expected.getData()).equals(
+                        Benchmarks.classifyEach(c, actual.getData()))) {
+            throw new IllegalStateException(name + ": loaders disagree");
+        }
+        double sequentialNanos = Benchmarks.time(() -> Benchmarks.load(fileName, labelIndex,
+                                                                       converter));
+        double parallelNanos = Benchmarks.time(parallel::get);
+        Benchmarks.printTime(name, "DataLoader", sequentialNanos);
+        Benchmarks.printTime(name, "loadParallel", parallelNanos, sequentialNanos);
+    }
+}
@@ -0,0 +1,41 @@
+import java.io.*;
+import java.util.*;
+
+// Profiles the trees/large.txt model on the email test set and on synthetic emails (see
+// Benchmarks.syntheticEmails), printing the hot-path report and the start of the annotated
+// dump, then compares the classification latency of the frozen tree with its profiling form
+// and with the frozen tree laid out again by the profiled counts. Also compares the latency of
+// a synthetic model (a full tree of depth Benchmarks.SYNTHETIC_MODEL_DEPTH) before and after it
+// is laid out again.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out ProfilingBenchmark [synthetic emails]
+public class ProfilingBenchmark {
+    public static final int DUMP_LINES = 12;
+
+    public static void main(String[] args) {
+        FrozenClassificationTree tree = Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE).freeze();
+        List<Classifiable> data = new ArrayList<>(Benchmarks.emailTest().getData());
+        Benchmarks.syntheticEmails(Benchmarks.syntheticSize(args), data, new ArrayList<>());
+
+        ProfiledClassificationTree profiled = tree.profile();
+        profiled.classifyAll(data);
+        profiled.report(System.out, 5);
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        profiled.dump(new PrintStream(dump));
+        System.out.println("Annotated dump:");
+        dump.toString().lines().limit(DUMP_LINES).forEach(line -> System.out.println("  " +
+                                                                                     line));
+        System.out.println("  ...");
+
+        Benchmarks.compare("profiled", data, tree, tree.profile());
+        Benchmarks.compare("reordered", data, tree, profiled.reorder());
+
+        // A model too large for the caches, where the layout matters more
+        FrozenClassificationTree synthetic = Benchmarks.syntheticModel().freeze();
+        ProfiledClassificationTree syntheticProfile = synthetic.profile();
+        syntheticProfile.classifyAll(data);
+        Benchmarks.compare("synthetic", data, synthetic, syntheticProfile.reorder());
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.*;
+
+// Grows a tree one datapoint at a time on 80% of the email training set and prunes it with
+// TreePruner: against the other 20% (reduced-error pruning), to a quarter of its nodes and to a
+// depth of 8. Prints the accuracy, size and average path length of each tree on the email test
+// set, and the time to classify the test set with each. Throws an IllegalStateException if a
+// pruned tree isn't smaller than the original.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out PruningBenchmark
+public class PruningBenchmark {
+    public static void main(String[] args) {
+        DataLoader train = Benchmarks.emailTrain();
+        DataLoader test = Benchmarks.emailTest();
+        List<Classifiable> data = train.getData();
+        List<String> labels = train.getLabels();
+        int split = data.size() * 4 / 5;
+        List<Classifiable> growData = data.subList(0, split);
+        List<String> growLabels = labels.subList(0, split);
+        FrozenClassificationTree tree = new ClassificationTree(growData, growLabels).freeze();
+
+        TreePruner pruner = new TreePruner(tree, growData, growLabels);
+        Map<String, FrozenClassificationTree> trees = new LinkedHashMap<>();
+        trees.put("unpruned", tree);
+        trees.put("reduced-error", pruner.pruneReducedError(data.subList(split, data.size()),
+                                                            labels.subList(split, data.size())));
+        trees.put("quarter size", pruner.pruneToSize(tree.getNodeCount() / 4));
+        trees.put("depth 8", pruner.pruneToDepth(8));
+        for (String name : trees.keySet()) {
+            FrozenClassificationTree pruned = trees.get(name);
+            if (pruned != tree && pruned.getNodeCount() >= tree.getNodeCount()) {
+                throw new IllegalStateException("prune: " + name + " tree isn't smaller");
+            }
+            TreePruner.Report report = new TreePruner.Report(pruned, test.getData(),
+                                                             test.getLabels());
+            double nanos = Benchmarks.time(() -> Benchmarks.classifyEach(pruned, test.getData())) /
+                           test.getData().size();
+            System.out.printf("%-14s %s, %.1f ns/datapoint%n", name, report, nanos);
+        }
+    }
+}
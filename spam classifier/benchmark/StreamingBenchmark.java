@@ -0,0 +1,46 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+// Compares calculateAccuracy on a loaded DataLoader with calculateAccuracy on a streamed file
+// (loading included in both), on the song test set (with a model trained on the song training
+// set) and the email test set (with the trees/large.txt model). Throws an
+// IllegalStateException if the two don't produce the same accuracies.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out StreamingBenchmark
+public class StreamingBenchmark {
+    public static void main(String[] args) {
+        compare("songs", Benchmarks.songTree(), Benchmarks.SONG_TEST_FILE,
+                Benchmarks.SONG_LABEL_INDEX, Song::toClassifiable);
+        compare("emails", Benchmarks.loadTree(Benchmarks.EMAIL_MODEL_FILE),
+                Benchmarks.EMAIL_TEST_FILE, Benchmarks.EMAIL_LABEL_INDEX, Email::toClassifiable);
+    }
+
+    // Times calculateAccuracy of the provided classifier on the provided file, loaded with a
+    //      DataLoader and streamed with DataLoader.stream
+    private static void compare(String name, Classifier c, String fileName, int labelIndex,
+                                Function<List<String>, Classifiable> converter) {
+        Supplier<Map<String, Double>> loaded = () -> {
+            DataLoader loader = Benchmarks.load(fileName, labelIndex, converter);
+            return c.calculateAccuracy(loader.getData(), loader.getLabels());
+        };
+        Supplier<Map<String, Double>> streamed = () -> {
+            try (Stream<LabeledExample> examples = DataLoader.stream(fileName, labelIndex,
+                                                                     converter, 0)) {
+                return c.calculateAccuracy(examples.iterator());
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        if (!loaded.get().equals(streamed.get())) {
+            throw new IllegalStateException(name + ": accuracies disagree");
+        }
+        double loadedNanos = Benchmarks.time(loaded::get);
+        double streamedNanos = Benchmarks.time(streamed::get);
+        Benchmarks.printTime(name, "DataLoader", loadedNanos);
+        Benchmarks.printTime(name, "stream", streamedNanos, loadedNanos);
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.*;
+import java.util.*;
+
+// Times loading trees/large.txt scaled up MODEL_COPIES times (a chain of MODEL_COPIES splits
+// with a copy of the model hanging off each) through a Scanner and through a BufferedReader,
+// then loads, classifies with and saves a degenerate model that is DEEP_MODEL_DEPTH splits
+// deep. Throws an IllegalStateException if a loaded model doesn't save back to the file it was
+// loaded from.
+//
+// Compile and run from the spam classifier directory:
+//      javac -d out *.java benchmark/*.java
+//      java -cp out TextLoadingBenchmark
+public class TextLoadingBenchmark {
+    public static final int MODEL_COPIES = 1000;
+    public static final int DEEP_MODEL_DEPTH = 1000000;
+
+    public static void main(String[] args) throws IOException {
+        List<String> model = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(
+                Benchmarks.EMAIL_MODEL_FILE))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                model.add(line);
+            }
+        }
+        File scaled = File.createTempFile("scaled", ".txt");
+        scaled.deleteOnExit();
+        try (PrintStream ps = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(scaled)))) {
+            for (int i = 0; i < MODEL_COPIES; i++) {
+                ps.println("Feature: wordPercent~copy" + i);
+                ps.println("Threshold: 0.5");
+                model.forEach(ps::println);
+            }
+            model.forEach(ps::println);
+        }
+        checkRoundTrip(scaled, Benchmarks.loadTree(scaled.getPath()));
+        checkRoundTrip(scaled, loadWithScanner(scaled.getPath()));
+        double scannerNanos = Benchmarks.time(() -> loadWithScanner(scaled.getPath()));
+        double readerNanos = Benchmarks.time(() -> Benchmarks.loadTree(scaled.getPath()));
+        System.out.printf("%-20s %10d bytes %12.3f ms%n", "Scanner", scaled.length(),
+                          scannerNanos / 1e6);
+        System.out.printf("%-20s %10d bytes %12.3f ms (%.2fx)%n", "BufferedReader",
+                          scaled.length(), readerNanos / 1e6, scannerNanos / readerNanos);
+
+        File deep = File.createTempFile("deep", ".txt");
+        deep.deleteOnExit();
+        try (PrintStream ps = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(deep)))) {
+            for (int i = 0; i < DEEP_MODEL_DEPTH; i++) {
+                ps.println("Feature: wordPercent~w" + (i % Benchmarks.SYNTHETIC_VOCABULARY));
+                ps.println("Threshold: 0.5");
+                ps.println(i % 2 == 0 ? "spam" : "ham");
+            }
+            ps.println("ham");
+        }
+        long start = System.nanoTime();
+        ClassificationTree tree = Benchmarks.loadTree(deep.getPath());
+        double loadMillis = (System.nanoTime() - start) / 1e6;
+        String label = tree.classify(new Email("w" + Benchmarks.SYNTHETIC_VOCABULARY));
+        checkRoundTrip(deep, tree);
+        System.out.printf("%-20s %10d bytes %12.3f ms (classified as %s)%n",
+                          "deep (" + DEEP_MODEL_DEPTH + ")", deep.length(), loadMillis, label);
+    }
+
+    // Loads a ClassificationTree from the provided model file through a Scanner
+    // Throws an UncheckedIOException
+    //      If the file doesn't exist
+    private static ClassificationTree loadWithScanner(String fileName) {
+        try (Scanner sc = new Scanner(new File(fileName))) {
+            return new ClassificationTree(sc);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Checks that saving the provided tree gives back exactly the contents of the provided file
+    // Throws an IllegalStateException
+    //      If it doesn't
+    private static void checkRoundTrip(File file, Classifier tree) throws IOException {
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(saved);
+        tree.save(ps);
+        ps.flush();
+        if (!Arrays.equals(saved.toByteArray(), java.nio.file.Files.readAllBytes(file.toPath()))) {
+            throw new IllegalStateException(file + ": saved model differs");
+        }
+    }
+}